@@ -11,14 +11,16 @@
 */
 
 import cardGame.*;
+import gameTree.*;
 import geneticAlgo.*;
 
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
-public class BreadthKuhnPoker {
+public class BreadthKuhnPoker implements GameVariant {
 
-	// Variable to hold the pot in the game
-    public static int pot;
+    // Betting tree of the game, used to evaluate it exactly
+    private final static GameTree TREE = buildGameTree();
 
 	/*
 	* Returns the winning player by comparing their hands.
@@ -38,19 +40,28 @@ public class BreadthKuhnPoker {
 	* each player.
 	*/
     public static int[] chromoGamePlay(Chromosome ch1, Chromosome ch2) {
+        return chromoGamePlay(ch1, ch2, ThreadLocalRandom.current());
+    }
+
+	/*
+	* Play a game given two chromosomes, drawing the cards and every
+	* decision from the given random generator, and return the amount
+	* won by each player.
+	*/
+    public static int[] chromoGamePlay(Chromosome ch1, Chromosome ch2, Random rand) {
 
         // Players initialized
         Player p1 = new Player();
         Player p2 = new Player();
 
         // Ante (each player puts 1 in pot)
-        pot = 2;
+        Pot pot = new Pot(2);
         p1.bet(1);
         p2.bet(1);
 
         // Deck is shuffled and one card is dealt to each player
         Deck deck = new Deck();
-        deck.shuffle();
+        deck.shuffle(rand);
 
         // Deal cards (will return exception if deck is empty)
         try {
@@ -61,11 +72,10 @@ public class BreadthKuhnPoker {
         }
 
         // Play hand and give pot to winning player.
-        Player winner = chromoHandPlay(p1, p2, ch1, ch2);
+        Player winner = chromoHandPlay(p1, p2, ch1, ch2, pot, rand);
 
         // Print out result and give pot to winner.
-        winner.win(pot);
-        pot = 0;
+        pot.payTo(winner);
 
         // Store wins in an array.
         int[] wins = new int[2];
@@ -75,6 +85,15 @@ public class BreadthKuhnPoker {
         return wins;
     }
 
+	/*
+	* Play a game given two chromosomes without allocating any object,
+	* drawing cards and decisions from the given random generator and
+	* adding the amount won by each player to the accumulator.
+	*/
+    public static void chromoGamePlay(Chromosome ch1, Chromosome ch2, Random rand, HandAccumulator acc) {
+        HandSimulator.gamePlay(TREE, ch1, ch2, rand, acc);
+    }
+
 	/*
 	* Play 6 games between two chromosomes, one for each possible
 	* combination of cards, and return the average winnings of all of
@@ -122,16 +141,15 @@ public class BreadthKuhnPoker {
         p2.addCard(c2);
 
         // Ante (each player puts 1 in pot)
-        pot = 2;
+        Pot pot = new Pot(2);
         p1.bet(1);
         p2.bet(1);
 
         // Play hand and give pot to winning player.
-        Player winner = chromoHandPlay(p1, p2, ch1, ch2);
+        Player winner = chromoHandPlay(p1, p2, ch1, ch2, pot, ThreadLocalRandom.current());
 
         // Print out result and give pot to winner.
-        winner.win(pot);
-        pot = 0;
+        pot.payTo(winner);
 
         // Store wins in an array.
         int[] wins = new int[2];
@@ -145,7 +163,7 @@ public class BreadthKuhnPoker {
 	* Returns whether a player checks or bets from the chromosome passed 
 	* to it.
 	*/
-    public static char checkOrBet(Player p, Chromosome ch) {
+    public static char checkOrBet(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
 
@@ -153,7 +171,6 @@ public class BreadthKuhnPoker {
         int indStrategy = card - 9;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -168,7 +185,7 @@ public class BreadthKuhnPoker {
 	* Returns whether a player bets $1 or more from the chromosome passed 
 	* to it.
 	*/
-    public static char bet1orMore(Player p, Chromosome ch) {
+    public static char bet1orMore(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
 
@@ -176,7 +193,6 @@ public class BreadthKuhnPoker {
         int indStrategy = card - 6;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -191,7 +207,7 @@ public class BreadthKuhnPoker {
 	* Returns whether a player bets $2 or $10 from the chromosome passed 
 	* to it.
 	*/
-    public static char bet2or10(Player p, Chromosome ch) {
+    public static char bet2or10(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
 
@@ -199,7 +215,6 @@ public class BreadthKuhnPoker {
         int indStrategy = card - 3;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -214,7 +229,7 @@ public class BreadthKuhnPoker {
 	* Returns whether a player calls or folds $1 from the chromosome passed 
 	* to it.
 	*/
-    public static char callOrFold1(Player p, Chromosome ch) {
+    public static char callOrFold1(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card J = 11, Q = 12, K = 13
         int card = p.showCard(0).getRank().ordinal();
 
@@ -222,7 +237,6 @@ public class BreadthKuhnPoker {
         int indStrategy = card;
 
         // Generate random double between 0 and 1.
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -237,7 +251,7 @@ public class BreadthKuhnPoker {
 	* Returns whether a player calls or folds $2 from the chromosome passed 
 	* to it.
 	*/
-    public static char callOrFold2(Player p, Chromosome ch) {
+    public static char callOrFold2(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card J = 11, Q = 12, K = 13
         int card = p.showCard(0).getRank().ordinal();
 
@@ -245,7 +259,6 @@ public class BreadthKuhnPoker {
         int indStrategy = card + 3;
 
         // Generate random double between 0 and 1.
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -260,7 +273,7 @@ public class BreadthKuhnPoker {
 	* Returns whether a player calls or folds $10 from the chromosome passed 
 	* to it.
 	*/
-    public static char callOrFold10(Player p, Chromosome ch) {
+    public static char callOrFold10(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card J = 11, Q = 12, K = 13
         int card = p.showCard(0).getRank().ordinal();
 
@@ -268,7 +281,6 @@ public class BreadthKuhnPoker {
         int indStrategy = card + 6;
 
         // Generate random double between 0 and 1.
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -281,29 +293,30 @@ public class BreadthKuhnPoker {
 
 	/*
 	* Plays a hand between two players using the given strategies and
-	* returns the winning Player.
+	* returns the winning Player. Bets are added to the pot of the hand,
+	* so hands can be played concurrently.
 	*/
-    public static Player chromoHandPlay(Player p1, Player p2, Chromosome ch1, Chromosome ch2) {
+    public static Player chromoHandPlay(Player p1, Player p2, Chromosome ch1, Chromosome ch2, Pot pot, Random rand) {
         
     	// P1 checks/bets
-        char action = checkOrBet(p1, ch1);
+        char action = checkOrBet(p1, ch1, rand);
 
         if ( action == 'c' ) {
         	// P2 checks/bets
-            action = checkOrBet(p2, ch2);
+            action = checkOrBet(p2, ch2, rand);
             if ( action == 'b' ) {
             	// P2 bets $1 or more
-                action = bet1orMore(p2, ch2);
+                action = bet1orMore(p2, ch2, rand);
                 if (action == '1') {
                 	// P2 bets $1 and gets added to pot
                     p2.bet(1);
-                    pot += 1;
+                    pot.add(1);
                     // P1 calls/folds $1
-                    action = callOrFold1(p1, ch1);
+                    action = callOrFold1(p1, ch1, rand);
                     if ( action == 'c') {
                     	// P1 bets $1 and gets added to pot
                         p1.bet(1);
-                        pot += 1;
+                        pot.add(1);
                         // Showdown: check cards and return winner
                         return checkCards(p1, p2);
                     } else {
@@ -312,17 +325,17 @@ public class BreadthKuhnPoker {
                     }
                 } else {
                 	// P2 bets $2 or $10
-                    action = bet2or10(p2, ch2);
+                    action = bet2or10(p2, ch2, rand);
                     if (action == '2') {
                     	// P2 bets $2 and gets added to pot
                         p2.bet(2);
-                        pot += 2;
+                        pot.add(2);
                         // P1 calls/folds $2
-                        action = callOrFold2(p1, ch1);
+                        action = callOrFold2(p1, ch1, rand);
                         if ( action == 'c') {
                         	// P1 bets $2 and gets added to pot
                             p1.bet(2);
-                            pot += 2;
+                            pot.add(2);
                             // Showdown: check cards and return winner
                             return checkCards(p1, p2);
                         } else {
@@ -332,13 +345,13 @@ public class BreadthKuhnPoker {
                     } else {
                     	// P2 bets $10 and gets added to pot
                         p2.bet(10);
-                        pot += 10;
+                        pot.add(10);
                         // P1 calls/folds $10
-                        action = callOrFold10(p1, ch1);
+                        action = callOrFold10(p1, ch1, rand);
                         if ( action == 'c') {
                         	// P1 bets $10 and gets added to pot
                             p1.bet(10);
-                            pot += 10;
+                            pot.add(10);
                             // Showdown: check cards and return winner
                             return checkCards(p1, p2);
                         } else {
@@ -353,17 +366,17 @@ public class BreadthKuhnPoker {
             }
         } else {
         	// P1 bets $1 or more
-            action = bet1orMore(p1, ch1);
+            action = bet1orMore(p1, ch1, rand);
             if (action == '1') {
             	// P1 bets $1 and gets added to pot
                 p1.bet(1);
-                pot += 1;
+                pot.add(1);
                 // P2 calls/folds $1
-                action = callOrFold1(p2, ch2);
+                action = callOrFold1(p2, ch2, rand);
                 if ( action == 'c' ) {
                 	// P2 bets $1 and gets added to pot
                     p2.bet(1);
-                    pot += 1;
+                    pot.add(1);
                     // Showdown: check cards and return winner
                     return checkCards(p1, p2);
                 } else {
@@ -372,16 +385,16 @@ public class BreadthKuhnPoker {
                 }
             } else {
             	// P1 bets $2 or $10
-                action = bet2or10(p1, ch1);
+                action = bet2or10(p1, ch1, rand);
                 if (action == '2') {
                     p1.bet(2);
-                    pot += 2;
+                    pot.add(2);
                     // P2 calls/folds $2
-                    action = callOrFold2(p2, ch2);
+                    action = callOrFold2(p2, ch2, rand);
                     if ( action == 'c' ) {
                     	// P2 bets $2 and gets added to pot
                         p2.bet(2);
-                        pot += 2;
+                        pot.add(2);
                         // Showdown: check cards and return winner
                         return checkCards(p1, p2);
                     } else {
@@ -391,13 +404,13 @@ public class BreadthKuhnPoker {
                 } else {
                 	// P1 bets $10 and gets added to pot
                     p1.bet(10);
-                    pot += 10;
-                    // P2 calls/folds $2
-                    action = callOrFold2(p2, ch2);
+                    pot.add(10);
+                    // P2 calls/folds $10
+                    action = callOrFold10(p2, ch2, rand);
                     if ( action == 'c' ) {
-                    	// P2 bets $2 and gets added to pot
+                    	// P2 bets $10 and gets added to pot
                         p2.bet(10);
-                        pot += 10;
+                        pot.add(10);
                         // Showdown: check cards and return winner
                         return checkCards(p1, p2);
                     } else {
@@ -408,4 +421,76 @@ public class BreadthKuhnPoker {
             }
         }
     }
+
+	/*
+	* Getter method for the betting tree followed by chromoHandPlay.
+	*/
+    public static GameTree getGameTree() {
+        return TREE;
+    }
+
+	/*
+	* Return the exact expected winnings of a game between two chromosomes.
+	*/
+    public static double[] chromoExpectedPlay(Chromosome ch1, Chromosome ch2) {
+        return ExactEvaluator.expectedPlay(TREE, ch1, ch2);
+    }
+
+	/*
+	* Methods of the GameVariant interface, played on the betting tree
+	* of the game.
+	*/
+    public String getName() {
+        return "breadth";
+    }
+
+    public int getChromoLength() {
+        return TREE.getChromoLength();
+    }
+
+    public GameTree getTree() {
+        return TREE;
+    }
+
+    public int playHand(Chromosome ch1, Chromosome ch2, Random rand) {
+        return HandSimulator.gamePlay(TREE, ch1, ch2, rand);
+    }
+
+    public void playGames(Chromosome ch1, Chromosome ch2, int games, Random rand, HandAccumulator acc) {
+        HandSimulator.playGames(TREE, ch1, ch2, games, rand, acc);
+    }
+
+    public double[] expectedPlay(Chromosome ch1, Chromosome ch2) {
+        return chromoExpectedPlay(ch1, ch2);
+    }
+
+	/*
+	* Builds the betting tree followed by chromoHandPlay, with the same
+	* genes used in every decision and the amount put in the pot by each
+	* player (ante included) at the end of the hand.
+	*/
+    private static GameTree buildGameTree() {
+        GameTree.Builder b = new GameTree.Builder(18);
+        int p1 = GameTree.PLAYER_1;
+        int p2 = GameTree.PLAYER_2;
+
+        // P1 checks, P2 bets $1, $2 or $10 and P1 calls/folds (genes 9, 12, 15)
+        int p2Bets1 = b.decision(p1, 9, b.showdown(2, 2), b.fold(p2, 1, 2));
+        int p2Bets2 = b.decision(p1, 12, b.showdown(3, 3), b.fold(p2, 1, 3));
+        int p2Bets10 = b.decision(p1, 15, b.showdown(11, 11), b.fold(p2, 1, 11));
+        // P2 bets $1 or more (gene 3) and $2 or $10 (gene 6)
+        int p2Bets = b.decision(p2, 3, b.decision(p2, 6, p2Bets10, p2Bets2), p2Bets1);
+        // P1 checks and P2 checks/bets (gene 0)
+        int p1Checks = b.decision(p2, 0, p2Bets, b.showdown(1, 1));
+
+        // P1 bets $1, $2 or $10 and P2 calls/folds (genes 9, 12 and 15)
+        int p1Bets1 = b.decision(p2, 9, b.showdown(2, 2), b.fold(p1, 2, 1));
+        int p1Bets2 = b.decision(p2, 12, b.showdown(3, 3), b.fold(p1, 3, 1));
+        int p1Bets10 = b.decision(p2, 15, b.showdown(11, 11), b.fold(p1, 11, 1));
+        // P1 bets $1 or more (gene 3) and $2 or $10 (gene 6)
+        int p1Bets = b.decision(p1, 3, b.decision(p1, 6, p1Bets10, p1Bets2), p1Bets1);
+
+        // P1 checks/bets (gene 0)
+        return b.build(b.decision(p1, 0, p1Bets, p1Checks));
+    }
 }
@@ -11,15 +11,17 @@
 */
 
 import cardGame.*;
+import gameTree.*;
 import geneticAlgo.*;
 
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.Scanner;
 
-public class ClassicKuhnPoker {
+public class ClassicKuhnPoker implements GameVariant {
 
-	// Variable to hold the pot in game.
-    public static int pot;
+    // Betting tree of the game, used to evaluate it exactly
+    private final static GameTree TREE = buildGameTree();
 
 	/*
 	* Returns the winning player by comparing their hands.
@@ -39,19 +41,28 @@ public class ClassicKuhnPoker {
 	* each player.
 	*/
     public static int[] chromoGamePlay(Chromosome ch1, Chromosome ch2) {
+        return chromoGamePlay(ch1, ch2, ThreadLocalRandom.current());
+    }
+
+	/*
+	* Play a game given two chromosomes, drawing the cards and every
+	* decision from the given random generator, and return the amount
+	* won by each player.
+	*/
+    public static int[] chromoGamePlay(Chromosome ch1, Chromosome ch2, Random rand) {
 
         // Players initialized
         Player p1 = new Player();
         Player p2 = new Player();
 
         // Ante (each player puts 1 in pot)
-        pot = 2;
+        Pot pot = new Pot(2);
         p1.bet(1);
         p2.bet(1);
 
         // Deck is shuffled and one card is dealt to each player
         Deck deck = new Deck();
-        deck.shuffle();
+        deck.shuffle(rand);
 
         // Deal cards (will return exception if deck is empty)
         try {
@@ -62,11 +73,10 @@ public class ClassicKuhnPoker {
         }
 
         // Play hand and give pot to winning player.
-        Player winner = chromoHandPlay(p1, p2, ch1, ch2);
+        Player winner = chromoHandPlay(p1, p2, ch1, ch2, pot, rand);
 
         // Print out result and give pot to winner.
-        winner.win(pot);
-        pot = 0;
+        pot.payTo(winner);
 
         // Store wins in an array and return it.
         int[] wins = new int[2];
@@ -76,6 +86,15 @@ public class ClassicKuhnPoker {
         return wins;
     }
 
+	/*
+	* Play a game given two chromosomes without allocating any object,
+	* drawing cards and decisions from the given random generator and
+	* adding the amount won by each player to the accumulator.
+	*/
+    public static void chromoGamePlay(Chromosome ch1, Chromosome ch2, Random rand, HandAccumulator acc) {
+        HandSimulator.gamePlay(TREE, ch1, ch2, rand, acc);
+    }
+
 	/*
 	* Play 6 games between two chromosomes, one for each possible
 	* combination of cards, and return the average winnings of all of
@@ -106,6 +125,57 @@ public class ClassicKuhnPoker {
         return wins;
     }
 
+	/*
+	* Return the exact expected winnings of a game between two chromosomes,
+	* averaging the 6 possible deals and weighting every outcome of the
+	* betting tree by the probabilities held in the genes.
+	*/
+    public static double[] chromoExpectedPlay(Chromosome ch1, Chromosome ch2) {
+
+        // Cards are indexed J = 0, Q = 1, K = 2 and every deal is equally likely
+        double ev = 0;
+        for (int c1 = 0; c1 < 3; c1++) {
+            for (int c2 = 0; c2 < 3; c2++) {
+                if (c1 != c2) {
+                    ev += expectedHandPlay(c1, c2, ch1, ch2);
+                }
+            }
+        }
+
+        // Game is zero-sum, so player 2 wins what player 1 loses
+        double[] wins = new double[2];
+        wins[0] = ev / 6;
+        wins[1] = -wins[0];
+
+        return wins;
+    }
+
+	/*
+	* Return the expected winnings of player 1 for a hand with the given
+	* cards, following the same betting tree as chromoHandPlay.
+	*/
+    public static double expectedHandPlay(int c1, int c2, Chromosome ch1, Chromosome ch2) {
+
+        // Showdown is won by player 1 if his card is higher
+        int showdown = (c1 > c2) ? 1 : -1;
+
+        // Probabilities of betting (genes 0-2) and calling (genes 3-5)
+        double bet1 = ch1.getGene(c1);
+        double call1 = ch1.getGene(c1 + 3);
+        double bet2 = ch2.getGene(c2);
+        double call2 = ch2.getGene(c2 + 3);
+
+        // P1 checks: P2 checks and the showdown is for $1, or P2 bets and
+        // P1 either calls a showdown for $2 or folds losing his ante
+        double check = (1 - bet2) * showdown
+                + bet2 * (call1 * 2 * showdown - (1 - call1));
+
+        // P1 bets: P2 either calls a showdown for $2 or folds his ante
+        double bet = call2 * 2 * showdown + (1 - call2);
+
+        return bet1 * bet + (1 - bet1) * check;
+    }
+
 	/*
 	* Return wins from a game between two strategies with the given cards.
 	*/
@@ -119,16 +189,15 @@ public class ClassicKuhnPoker {
         p2.addCard(c2);
 
         // Ante (each player puts 1 in pot)
-        pot = 2;
+        Pot pot = new Pot(2);
         p1.bet(1);
         p2.bet(1);
 
         // Play hand and give pot to winning player.
-        Player winner = chromoHandPlay(p1, p2, ch1, ch2);
+        Player winner = chromoHandPlay(p1, p2, ch1, ch2, pot, ThreadLocalRandom.current());
 
         // Print out result and give pot to winner.
-        winner.win(pot);
-        pot = 0;
+        pot.payTo(winner);
 
         // Store wins in an array.
         int[] wins = new int[2];
@@ -142,7 +211,7 @@ public class ClassicKuhnPoker {
 	* Returns whether a player checks or bets from the chromosome passed 
 	* to it.
 	*/
-    public static char checkOrBet(Player p, Chromosome ch) {
+    public static char checkOrBet(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
 
@@ -150,7 +219,6 @@ public class ClassicKuhnPoker {
         int indStrategy = card - 9;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -200,7 +268,7 @@ public class ClassicKuhnPoker {
 	* Returns whether a player calls or folds from the chromosome passed 
 	* to it.
 	*/
-    public static char callOrFold(Player p, Chromosome ch) {
+    public static char callOrFold(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card J = 9, Q = 10, K = 11
         int card = p.showCard(0).getRank().ordinal();
 
@@ -208,7 +276,6 @@ public class ClassicKuhnPoker {
         int indStrategy = card - 6;
 
         // Generate random double between 0 and 1.
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -221,26 +288,27 @@ public class ClassicKuhnPoker {
 
 	/*
 	* Plays a hand between two players using the given strategies and
-	* returns the winning Player.
+	* returns the winning Player. Bets are added to the pot of the hand,
+	* so hands can be played concurrently.
 	*/
-    public static Player chromoHandPlay(Player p1, Player p2, Chromosome ch1, Chromosome ch2) {
+    public static Player chromoHandPlay(Player p1, Player p2, Chromosome ch1, Chromosome ch2, Pot pot, Random rand) {
     	
         // P1 calls/folds
-        char action = checkOrBet(p1, ch1);
+        char action = checkOrBet(p1, ch1, rand);
 
         if ( action == 'c' ) {
         	// P2 checks/bets
-            action = checkOrBet(p2, ch2);
+            action = checkOrBet(p2, ch2, rand);
             if ( action == 'b' ) {
                 // P2 bets $1 and gets added to pot
                 p2.bet(1);
-                pot += 1;
+                pot.add(1);
                 // P1 calls/folds
-                action = callOrFold(p1, ch1);
+                action = callOrFold(p1, ch1, rand);
                 if ( action == 'c') {
                 	// P1 bets $1 and gets added to pot
                     p1.bet(1);
-                    pot += 1;
+                    pot.add(1);
                     // Showdown: check cards and return winner
                     return checkCards(p1, p2);
                 } else {
@@ -254,13 +322,13 @@ public class ClassicKuhnPoker {
         } else {
         	// P1 bets $1 and gets added to pot
             p1.bet(1);
-            pot += 1;
+            pot.add(1);
             // P2 calls/folds
-            action = callOrFold(p2, ch2);
+            action = callOrFold(p2, ch2, rand);
             if ( action == 'c' ) {
             	// P2 bets $1 and gets added to pot
                 p2.bet(1);
-                pot += 1;
+                pot.add(1);
                 // Showdown: check cards and return winner
                 return checkCards(p1, p2);
             } else {
@@ -268,5 +336,61 @@ public class ClassicKuhnPoker {
                 return p1;
             }
         }
-    }   
+    }
+
+	/*
+	* Getter method for the betting tree followed by chromoHandPlay.
+	*/
+    public static GameTree getGameTree() {
+        return TREE;
+    }
+
+	/*
+	* Methods of the GameVariant interface, played on the betting tree
+	* of the game.
+	*/
+    public String getName() {
+        return "classic";
+    }
+
+    public int getChromoLength() {
+        return TREE.getChromoLength();
+    }
+
+    public GameTree getTree() {
+        return TREE;
+    }
+
+    public int playHand(Chromosome ch1, Chromosome ch2, Random rand) {
+        return HandSimulator.gamePlay(TREE, ch1, ch2, rand);
+    }
+
+    public void playGames(Chromosome ch1, Chromosome ch2, int games, Random rand, HandAccumulator acc) {
+        HandSimulator.playGames(TREE, ch1, ch2, games, rand, acc);
+    }
+
+    public double[] expectedPlay(Chromosome ch1, Chromosome ch2) {
+        return chromoExpectedPlay(ch1, ch2);
+    }
+
+	/*
+	* Builds the betting tree followed by chromoHandPlay, with the same
+	* genes used in every decision and the amount put in the pot by each
+	* player (ante included) at the end of the hand.
+	*/
+    private static GameTree buildGameTree() {
+        GameTree.Builder b = new GameTree.Builder(6);
+        int p1 = GameTree.PLAYER_1;
+        int p2 = GameTree.PLAYER_2;
+
+        // P1 checks, P2 bets and P1 calls/folds (gene 3)
+        int p2Bets = b.decision(p1, 3, b.showdown(2, 2), b.fold(p2, 1, 2));
+        // P1 checks and P2 checks/bets (gene 0)
+        int p1Checks = b.decision(p2, 0, p2Bets, b.showdown(1, 1));
+        // P1 bets and P2 calls/folds (gene 3)
+        int p1Bets = b.decision(p2, 3, b.showdown(2, 2), b.fold(p1, 2, 1));
+
+        // P1 checks/bets (gene 0)
+        return b.build(b.decision(p1, 0, p1Bets, p1Checks));
+    }
 }
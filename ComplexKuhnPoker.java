@@ -11,14 +11,16 @@
 */
 
 import cardGame.*;
+import gameTree.*;
 import geneticAlgo.*;
 
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
-public class ComplexKuhnPoker {
+public class ComplexKuhnPoker implements GameVariant {
 
-	// Variable to hold the pot in the game
-    public static int pot;
+    // Betting tree of the game, used to evaluate it exactly
+    private final static GameTree TREE = buildGameTree();
 
 	/*
 	* Returns the winning player by comparing their hands.
@@ -38,19 +40,28 @@ public class ComplexKuhnPoker {
 	* each player.
 	*/
     public static int[] chromoGamePlay(Chromosome ch1, Chromosome ch2) {
+        return chromoGamePlay(ch1, ch2, ThreadLocalRandom.current());
+    }
+
+	/*
+	* Play a game given two chromosomes, drawing the cards and every
+	* decision from the given random generator, and return the amount
+	* won by each player.
+	*/
+    public static int[] chromoGamePlay(Chromosome ch1, Chromosome ch2, Random rand) {
 
         // Players initialized
         Player p1 = new Player();
         Player p2 = new Player();
 
         // Ante (each player puts 1 in pot)
-        pot = 2;
+        Pot pot = new Pot(2);
         p1.bet(1);
         p2.bet(1);
 
         // Deck is shuffled and one card is dealt to each player
         Deck deck = new Deck();
-        deck.shuffle();
+        deck.shuffle(rand);
 
         // Deal cards (will return exception if deck is empty)
         try {
@@ -61,11 +72,10 @@ public class ComplexKuhnPoker {
         }
 
         // Play hand and give pot to winning player.
-        Player winner = chromoHandPlay(p1, p2, ch1, ch2);
+        Player winner = chromoHandPlay(p1, p2, ch1, ch2, pot, rand);
 
         // Print out result and give pot to winner.
-        winner.win(pot);
-        pot = 0;
+        pot.payTo(winner);
 
         // Store wins in an array.
         int[] wins = new int[2];
@@ -75,12 +85,21 @@ public class ComplexKuhnPoker {
         return wins;
     }
 
+	/*
+	* Play a game given two chromosomes without allocating any object,
+	* drawing cards and decisions from the given random generator and
+	* adding the amount won by each player to the accumulator.
+	*/
+    public static void chromoGamePlay(Chromosome ch1, Chromosome ch2, Random rand, HandAccumulator acc) {
+        HandSimulator.gamePlay(TREE, ch1, ch2, rand, acc);
+    }
+
 
 	/*
 	* Returns whether a player checks or bets from the chromosome passed 
 	* to it.
 	*/
-    public static char checkOrBet(Player p, Chromosome ch) {
+    public static char checkOrBet(Player p, Chromosome ch, Random rand) {
         
     	// Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
@@ -89,7 +108,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card - 9;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -104,7 +122,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player bets $1 or more from the chromosome passed 
 	* to it.
 	*/
-    public static char bet1orMore(Player p, Chromosome ch) {
+    public static char bet1orMore(Player p, Chromosome ch, Random rand) {
     	
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
@@ -113,7 +131,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card - 6;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -129,7 +146,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player bets $2 or $10 from the chromosome passed 
 	* to it.
 	*/
-    public static char bet2or10(Player p, Chromosome ch) {
+    public static char bet2or10(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
 
@@ -137,7 +154,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card - 3;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -152,7 +168,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player folds $1 or not from the chromosome passed 
 	* to it.
 	*/
-    public static char fold1OrNot(Player p, Chromosome ch) {
+    public static char fold1OrNot(Player p, Chromosome ch, Random rand) {
     	
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
@@ -161,7 +177,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -176,7 +191,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player folds $2 or not from the chromosome passed 
 	* to it.
 	*/
-    public static char fold2OrNot(Player p, Chromosome ch) {
+    public static char fold2OrNot(Player p, Chromosome ch, Random rand) {
     	
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
@@ -185,7 +200,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card + 3;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -200,7 +214,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player folds $10 or not from the chromosome passed 
 	* to it.
 	*/
-    public static char fold10OrNot(Player p, Chromosome ch) {
+    public static char fold10OrNot(Player p, Chromosome ch, Random rand) {
     	
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
@@ -209,7 +223,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card + 6;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -224,7 +237,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player calls $1 or raises from the chromosome passed 
 	* to it.
 	*/
-    public static char callOrRaise1(Player p, Chromosome ch) {
+    public static char callOrRaise1(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
 
@@ -232,7 +245,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card + 9;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -247,7 +259,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player calls $2 or raises from the chromosome passed 
 	* to it.
 	*/
-    public static char callOrRaise2(Player p, Chromosome ch) {
+    public static char callOrRaise2(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
 
@@ -255,7 +267,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card + 12;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -270,7 +281,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player calls $10 or raises from the chromosome passed 
 	* to it.
 	*/
-    public static char callOrRaise10(Player p, Chromosome ch) {
+    public static char callOrRaise10(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
         int card = p.showCard(0).getRank().ordinal();
 
@@ -278,7 +289,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card + 15;
 
         // Generate random double between 0 and 1
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -293,7 +303,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player calls $1 or folds from the chromosome passed 
 	* to it.
 	*/
-    public static char callOrFold1(Player p, Chromosome ch) {
+    public static char callOrFold1(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card J = 11, Q = 12, K = 13
         int card = p.showCard(0).getRank().ordinal();
 
@@ -301,7 +311,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card + 18;
 
         // Generate random double between 0 and 1.
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -316,7 +325,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player calls $2 or folds from the chromosome passed 
 	* to it.
 	*/
-    public static char callOrFold2(Player p, Chromosome ch) {
+    public static char callOrFold2(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card J = 11, Q = 12, K = 13
         int card = p.showCard(0).getRank().ordinal();
 
@@ -324,7 +333,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card + 21;
 
         // Generate random double between 0 and 1.
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -339,7 +347,7 @@ public class ComplexKuhnPoker {
 	* Returns whether a player calls $10 or folds from the chromosome passed 
 	* to it.
 	*/
-    public static char callOrFold10(Player p, Chromosome ch) {
+    public static char callOrFold10(Player p, Chromosome ch, Random rand) {
         // Get ordinal of player's card J = 11, Q = 12, K = 13
         int card = p.showCard(0).getRank().ordinal();
 
@@ -347,7 +355,6 @@ public class ComplexKuhnPoker {
         int indStrategy = card + 24;
 
         // Generate random double between 0 and 1.
-        Random rand = new Random();
         double n = rand.nextDouble();
 
         // Determine strategy from corresponding parameter
@@ -360,34 +367,35 @@ public class ComplexKuhnPoker {
 
 	/*
 	* Plays a hand between two players using the given strategies and
-	* returns the winning Player.
+	* returns the winning Player. Bets are added to the pot of the hand,
+	* so hands can be played concurrently.
 	*/
-    public static Player chromoHandPlay(Player p1, Player p2, Chromosome ch1, Chromosome ch2) {
+    public static Player chromoHandPlay(Player p1, Player p2, Chromosome ch1, Chromosome ch2, Pot pot, Random rand) {
         
         // Player 1 checks/bets
-        char action = checkOrBet(p1, ch1);
+        char action = checkOrBet(p1, ch1, rand);
         if ( action == 'c' ) {
         	// P2 checks/bets
-            action = checkOrBet(p2, ch2);
+            action = checkOrBet(p2, ch2, rand);
             if ( action == 'b' ) {
             	// P2 bets $1 or more
-                action = bet1orMore(p2, ch2);
+                action = bet1orMore(p2, ch2, rand);
                 if (action == '1') {
                 	// P2 bets $1 and gets added to pot
                     p2.bet(1);
-                    pot += 1;
-                    action = fold1OrNot(p1, ch1);
+                    pot.add(1);
+                    action = fold1OrNot(p1, ch1, rand);
                     if ( action == 'n') {
-                        action = callOrRaise1(p1, ch1);
+                        action = callOrRaise1(p1, ch1, rand);
                         if ( action == 'r') {
                         	// P1 bets $2 and gets added to pot
                             p1.bet(2);
-                            pot += 2;
-                            action = callOrFold1(p2, ch2);
+                            pot.add(2);
+                            action = callOrFold1(p2, ch2, rand);
                             if (action == 'c') {
                             	// P2 bets $1 and gets added to pot
                                 p2.bet(1);
-                                pot += 1;
+                                pot.add(1);
                                 // Check cards to determine winner
                                 return checkCards(p1, p2);   
                             } else {
@@ -396,7 +404,7 @@ public class ComplexKuhnPoker {
                         } else {
                         	// P1 bets $1 and gets added to pot
                             p1.bet(1);
-                            pot += 1;
+                            pot.add(1);
                             return checkCards(p1, p2);
                         }
                     } else {
@@ -405,23 +413,23 @@ public class ComplexKuhnPoker {
                         return p2;
                     }
                 } else {
-                    action = bet2or10(p2, ch2);
+                    action = bet2or10(p2, ch2, rand);
                     if (action == '2') {
                     	// P2 bets $2 and gets added to pot
                         p2.bet(2);
-                        pot += 2;
-                        action = fold2OrNot(p1, ch1);
+                        pot.add(2);
+                        action = fold2OrNot(p1, ch1, rand);
                         if ( action == 'n') {
-                            action = callOrRaise2(p1, ch1);
+                            action = callOrRaise2(p1, ch1, rand);
                             if ( action == 'r') {
                             	// P1 bets $4 and gets added to pot
                                 p1.bet(4);
-                                pot += 4;
-                                action = callOrFold2(p2, ch2);
+                                pot.add(4);
+                                action = callOrFold2(p2, ch2, rand);
                                 if (action == 'c') {
                                 	// P2 bets $2 and gets added to pot
                                     p2.bet(2);
-                                    pot += 2;
+                                    pot.add(2);
                                     // Showdown: check cards and return winner
                                     return checkCards(p1, p2);   
                                 } else {
@@ -431,7 +439,7 @@ public class ComplexKuhnPoker {
                             } else {
                             	// P1 bets $2 and gets added to pot
                                 p1.bet(2);
-                                pot += 2;
+                                pot.add(2);
                                 // Showdown: check cards and return winner
                                 return checkCards(p1, p2);
                             }
@@ -442,19 +450,19 @@ public class ComplexKuhnPoker {
                     } else {
                     	// P2 bets $10 and gets added to pot
                         p2.bet(10);
-                        pot += 10;
-                        action = fold10OrNot(p1, ch1);
+                        pot.add(10);
+                        action = fold10OrNot(p1, ch1, rand);
                         if ( action == 'n') {
-                            action = callOrRaise10(p1, ch1);
+                            action = callOrRaise10(p1, ch1, rand);
                             if ( action == 'r') {
                             	// P1 bets $20 and gets added to pot
                                 p1.bet(20);
-                                pot += 20;
-                                action = callOrFold10(p2, ch2);
+                                pot.add(20);
+                                action = callOrFold10(p2, ch2, rand);
                                 if (action == 'c') {
                                 	// P2 bets $10 and gets added to pot
                                     p2.bet(10);
-                                    pot += 10;
+                                    pot.add(10);
                                     // Showdown: check cards and return winner
                                     return checkCards(p1, p2);   
                                 } else {
@@ -464,7 +472,7 @@ public class ComplexKuhnPoker {
                             } else {
                             	// P1 bets $10 and gets added to pot
                                 p1.bet(10);
-                                pot += 10;
+                                pot.add(10);
                                 // Showdown: check cards and return winner
                                 return checkCards(p1, p2);
                             }
@@ -479,21 +487,21 @@ public class ComplexKuhnPoker {
                 return checkCards(p1, p2);
             }
         } else {
-            action = bet1orMore(p1, ch1);
+            action = bet1orMore(p1, ch1, rand);
             if (action == '1') {
                 // Player 2 bets 1 and gets added to pot
                 p1.bet(1);
-                pot += 1;
-                action = fold1OrNot(p2, ch2);
+                pot.add(1);
+                action = fold1OrNot(p2, ch2, rand);
                 if ( action == 'n') {
-                    action = callOrRaise2(p2, ch2);
+                    action = callOrRaise1(p2, ch2, rand);
                     if ( action == 'r') {
                         p2.bet(2);
-                        pot += 2;
-                        action = callOrFold1(p1, ch1);
+                        pot.add(2);
+                        action = callOrFold1(p1, ch1, rand);
                         if (action == 'c') {
                             p1.bet(1);
-                            pot += 1;
+                            pot.add(1);
                             // Showdown: check cards and return winner
                             return checkCards(p1, p2);   
                         } else {
@@ -502,7 +510,7 @@ public class ComplexKuhnPoker {
                         }
                     } else {
                         p2.bet(1);
-                        pot += 1;
+                        pot.add(1);
                         // Showdown: check cards and return winner
                         return checkCards(p1, p2);
                     }
@@ -511,20 +519,20 @@ public class ComplexKuhnPoker {
                     return p1;
                 }
             } else {
-                action = bet2or10(p1, ch1);
+                action = bet2or10(p1, ch1, rand);
                 if (action == '2') {
                     p1.bet(2);
-                    pot += 2;
-                    action = fold2OrNot(p2, ch2);
+                    pot.add(2);
+                    action = fold2OrNot(p2, ch2, rand);
                     if ( action == 'n') {
-                        action = callOrRaise2(p2, ch2);
+                        action = callOrRaise2(p2, ch2, rand);
                         if ( action == 'r') {
                             p2.bet(4);
-                            pot += 4;
-                            action = callOrFold2(p1, ch1);
+                            pot.add(4);
+                            action = callOrFold2(p1, ch1, rand);
                             if (action == 'c') {
                                 p1.bet(2);
-                                pot += 2;
+                                pot.add(2);
                                 // Showdown: check cards and return winner
                                 return checkCards(p1, p2);   
                             } else {
@@ -533,7 +541,7 @@ public class ComplexKuhnPoker {
                             }
                         } else {
                             p2.bet(2);
-                            pot += 2;
+                            pot.add(2);
                             // Showdown: check cards and return winner
                             return checkCards(p1, p2);
                         }
@@ -543,17 +551,17 @@ public class ComplexKuhnPoker {
                     }
                 } else {
                     p1.bet(10);
-                    pot += 10;
-                    action = fold10OrNot(p2, ch2);
+                    pot.add(10);
+                    action = fold10OrNot(p2, ch2, rand);
                     if ( action == 'n') {
-                        action = callOrRaise10(p2, ch2);
+                        action = callOrRaise10(p2, ch2, rand);
                         if ( action == 'r') {
                             p2.bet(20);
-                            pot += 20;
-                            action = callOrFold10(p1, ch1);
+                            pot.add(20);
+                            action = callOrFold10(p1, ch1, rand);
                             if (action == 'c') {
                                 p1.bet(10);
-                                pot += 10;
+                                pot.add(10);
                                 // Showdown: check cards and return winner
                                 return checkCards(p1, p2);   
                             } else {
@@ -562,7 +570,7 @@ public class ComplexKuhnPoker {
                             }
                         } else {
                             p2.bet(10);
-                            pot += 10;
+                            pot.add(10);
                             // Showdown: check cards and return winner
                             return checkCards(p1, p2);
                         }
@@ -574,4 +582,98 @@ public class ComplexKuhnPoker {
             }
         }
     }
+
+	/*
+	* Getter method for the betting tree followed by chromoHandPlay.
+	*/
+    public static GameTree getGameTree() {
+        return TREE;
+    }
+
+	/*
+	* Return the exact expected winnings of a game between two chromosomes.
+	*/
+    public static double[] chromoExpectedPlay(Chromosome ch1, Chromosome ch2) {
+        return ExactEvaluator.expectedPlay(TREE, ch1, ch2);
+    }
+
+	/*
+	* Methods of the GameVariant interface, played on the betting tree
+	* of the game.
+	*/
+    public String getName() {
+        return "complex";
+    }
+
+    public int getChromoLength() {
+        return TREE.getChromoLength();
+    }
+
+    public GameTree getTree() {
+        return TREE;
+    }
+
+    public int playHand(Chromosome ch1, Chromosome ch2, Random rand) {
+        return HandSimulator.gamePlay(TREE, ch1, ch2, rand);
+    }
+
+    public void playGames(Chromosome ch1, Chromosome ch2, int games, Random rand, HandAccumulator acc) {
+        HandSimulator.playGames(TREE, ch1, ch2, games, rand, acc);
+    }
+
+    public double[] expectedPlay(Chromosome ch1, Chromosome ch2) {
+        return chromoExpectedPlay(ch1, ch2);
+    }
+
+	/*
+	* Builds the betting tree followed by chromoHandPlay, with the same
+	* genes used in every decision and the amount put in the pot by each
+	* player (ante included) at the end of the hand.
+	*/
+    private static GameTree buildGameTree() {
+        GameTree.Builder b = new GameTree.Builder(36);
+        int p1 = GameTree.PLAYER_1;
+        int p2 = GameTree.PLAYER_2;
+
+        // P1 checks and P2 bets $1: P1 folds or not (gene 9), calls or
+        // raises $2 (gene 18) and P2 calls/folds (gene 27)
+        int p2Bets1 = b.decision(p1, 9,
+                b.decision(p1, 18, b.decision(p2, 27, b.showdown(3, 3), b.fold(p1, 3, 2)), b.showdown(2, 2)),
+                b.fold(p2, 1, 2));
+        // P2 bets $2: P1 folds or not (gene 12), calls or raises $4
+        // (gene 21) and P2 calls/folds (gene 30)
+        int p2Bets2 = b.decision(p1, 12,
+                b.decision(p1, 21, b.decision(p2, 30, b.showdown(5, 5), b.fold(p1, 5, 3)), b.showdown(3, 3)),
+                b.fold(p2, 1, 3));
+        // P2 bets $10: P1 folds or not (gene 15), calls or raises $20
+        // (gene 24) and P2 calls/folds (gene 33)
+        int p2Bets10 = b.decision(p1, 15,
+                b.decision(p1, 24, b.decision(p2, 33, b.showdown(21, 21), b.fold(p1, 21, 11)), b.showdown(11, 11)),
+                b.fold(p2, 1, 11));
+        // P2 bets $1 or more (gene 3) and $2 or $10 (gene 6)
+        int p2Bets = b.decision(p2, 3, b.decision(p2, 6, p2Bets10, p2Bets2), p2Bets1);
+        // P1 checks and P2 checks/bets (gene 0)
+        int p1Checks = b.decision(p2, 0, p2Bets, b.showdown(1, 1));
+
+        // P1 bets $1: P2 folds or not (gene 9), calls or raises $2 (gene
+        // 18) and P1 calls/folds (gene 27)
+        int p1Bets1 = b.decision(p2, 9,
+                b.decision(p2, 18, b.decision(p1, 27, b.showdown(3, 3), b.fold(p2, 2, 3)), b.showdown(2, 2)),
+                b.fold(p1, 2, 1));
+        // P1 bets $2: P2 folds or not (gene 12), calls or raises $4
+        // (gene 21) and P1 calls/folds (gene 30)
+        int p1Bets2 = b.decision(p2, 12,
+                b.decision(p2, 21, b.decision(p1, 30, b.showdown(5, 5), b.fold(p2, 3, 5)), b.showdown(3, 3)),
+                b.fold(p1, 3, 1));
+        // P1 bets $10: P2 folds or not (gene 15), calls or raises $20
+        // (gene 24) and P1 calls/folds (gene 33)
+        int p1Bets10 = b.decision(p2, 15,
+                b.decision(p2, 24, b.decision(p1, 33, b.showdown(21, 21), b.fold(p2, 11, 21)), b.showdown(11, 11)),
+                b.fold(p1, 11, 1));
+        // P1 bets $1 or more (gene 3) and $2 or $10 (gene 6)
+        int p1Bets = b.decision(p1, 3, b.decision(p1, 6, p1Bets10, p1Bets2), p1Bets1);
+
+        // P1 checks/bets (gene 0)
+        return b.build(b.decision(p1, 0, p1Bets, p1Checks));
+    }
 }
@@ -11,14 +11,16 @@
 */
 
 import cardGame.*;
+import gameTree.*;
 import geneticAlgo.*;
 
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
-public class DepthKuhnPoker {
+public class DepthKuhnPoker implements GameVariant {
 
-	// Variable to hold the pot in the game
-	public static int pot;
+	// Betting tree of the game, used to evaluate it exactly
+	private final static GameTree TREE = buildGameTree();
 
 	/*
 	* Returns the winning player by comparing their hands.
@@ -38,19 +40,28 @@ public class DepthKuhnPoker {
 	* each player.
 	*/
 	public static int[] chromoGamePlay(Chromosome ch1, Chromosome ch2) {
+		return chromoGamePlay(ch1, ch2, ThreadLocalRandom.current());
+	}
+
+	/*
+	* Play a game given two chromosomes, drawing the cards and every
+	* decision from the given random generator, and return the amount
+	* won by each player.
+	*/
+	public static int[] chromoGamePlay(Chromosome ch1, Chromosome ch2, Random rand) {
 		
 		// Players initialized
 		Player p1 = new Player();
 		Player p2 = new Player();
 		
 		// Ante (each player puts 1 in pot)
-		pot = 2;
+		Pot pot = new Pot(2);
 		p1.bet(1);
 		p2.bet(1);
 		
 		// Deck is shuffled and one card is dealt to each player
 		Deck deck = new Deck();
-		deck.shuffle();
+		deck.shuffle(rand);
 		
 		// Deal cards (will return exception if deck is empty)
 		try {
@@ -61,11 +72,10 @@ public class DepthKuhnPoker {
 		}
 		
 		// Play hand and give pot to winning player.
-		Player winner = chromoHandPlay(p1, p2, ch1, ch2);
+		Player winner = chromoHandPlay(p1, p2, ch1, ch2, pot, rand);
 		
 		// Print out result and give pot to winner.
-		winner.win(pot);
-		pot = 0;
+		pot.payTo(winner);
 		
 		// Store wins in an array.
 		int[] wins = new int[2];
@@ -75,6 +85,15 @@ public class DepthKuhnPoker {
 		return wins;
 	}
 
+	/*
+	* Play a game given two chromosomes without allocating any object,
+	* drawing cards and decisions from the given random generator and
+	* adding the amount won by each player to the accumulator.
+	*/
+	public static void chromoGamePlay(Chromosome ch1, Chromosome ch2, Random rand, HandAccumulator acc) {
+		HandSimulator.gamePlay(TREE, ch1, ch2, rand, acc);
+	}
+
 	/*
 	* Play 6 games between two chromosomes, one for each possible
 	* combination of cards, and return the average winnings of all of
@@ -123,16 +142,15 @@ public class DepthKuhnPoker {
 		p2.addCard(c2);
 		
 		// Ante (each player puts 1 in pot)
-		pot = 2;
+		Pot pot = new Pot(2);
 		p1.bet(1);
 		p2.bet(1);
 		
 		// Play hand and give pot to winning player.
-		Player winner = chromoHandPlay(p1, p2, ch1, ch2);
+		Player winner = chromoHandPlay(p1, p2, ch1, ch2, pot, ThreadLocalRandom.current());
 		
 		// Print out result and give pot to winner.
-		winner.win(pot);
-		pot = 0;
+		pot.payTo(winner);
 		
 		// Store wins in an array.
 		int[] wins = new int[2];
@@ -146,7 +164,7 @@ public class DepthKuhnPoker {
 	* Returns whether a player checks or bets from the chromosome passed 
 	* to it.
 	*/
-	public static char checkOrBet(Player p, Chromosome ch) {
+	public static char checkOrBet(Player p, Chromosome ch, Random rand) {
 		// Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
 		int card = p.showCard(0).getRank().ordinal();
 		
@@ -154,7 +172,6 @@ public class DepthKuhnPoker {
 		int indStrategy = card - 9;
 		
 		// Generate random double between 0 and 1
-		Random rand = new Random();
 		double n = rand.nextDouble();
 		
 		// Determine strategy from corresponding parameter
@@ -169,7 +186,7 @@ public class DepthKuhnPoker {
 	* Returns whether a player folds or not from the chromosome passed 
 	* to it.
 	*/
-	public static char foldOrNot(Player p, Chromosome ch) {
+	public static char foldOrNot(Player p, Chromosome ch, Random rand) {
 		// Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
 		int card = p.showCard(0).getRank().ordinal();
 		
@@ -177,7 +194,6 @@ public class DepthKuhnPoker {
 		int indStrategy = card - 6;
 		
 		// Generate random double between 0 and 1
-		Random rand = new Random();
 		double n = rand.nextDouble();
 		
 		// Determine strategy from corresponding parameter
@@ -192,7 +208,7 @@ public class DepthKuhnPoker {
 	* Returns whether a player calls or raises from the chromosome passed 
 	* to it.
 	*/
-	public static char callOrRaise(Player p, Chromosome ch) {
+	public static char callOrRaise(Player p, Chromosome ch, Random rand) {
 		// Get ordinal of player's card 2 = 0, ... J = 9, Q = 10, K = 11, A=12
 		int card = p.showCard(0).getRank().ordinal();
 		
@@ -200,7 +216,6 @@ public class DepthKuhnPoker {
 		int indStrategy = card - 3;
 		
 		// Generate random double between 0 and 1
-		Random rand = new Random();
 		double n = rand.nextDouble();
 		
 		// Determine strategy from corresponding parameter
@@ -215,7 +230,7 @@ public class DepthKuhnPoker {
 	* Returns whether a player calls or folds from the chromosome passed 
 	* to it.
 	*/
-	public static char callOrFold(Player p, Chromosome ch) {
+	public static char callOrFold(Player p, Chromosome ch, Random rand) {
 		// Get ordinal of player's card J = 11, Q = 12, K = 13
 		int card = p.showCard(0).getRank().ordinal();
 		
@@ -223,7 +238,6 @@ public class DepthKuhnPoker {
 		int indStrategy = card;
 		
 		// Generate random double between 0 and 1.
-		Random rand = new Random();
 		double n = rand.nextDouble();
 		
 		// Determine strategy from corresponding parameter
@@ -236,35 +250,36 @@ public class DepthKuhnPoker {
 
 	/*
 	* Plays a hand between two players using the given strategies and
-	* returns the winning Player.
+	* returns the winning Player. Bets are added to the pot of the hand,
+	* so hands can be played concurrently.
 	*/
-	public static Player chromoHandPlay(Player p1, Player p2, Chromosome ch1, Chromosome ch2) {     
+	public static Player chromoHandPlay(Player p1, Player p2, Chromosome ch1, Chromosome ch2, Pot pot, Random rand) {     
 		
 		// P1 checks/bets
-		char action = checkOrBet(p1, ch1);
+		char action = checkOrBet(p1, ch1, rand);
 		
 		if ( action == 'c' ) {
 			// P2 checks/bets
-			action = checkOrBet(p2, ch2);
+			action = checkOrBet(p2, ch2, rand);
 			if ( action == 'b' ) {
 				// P2 bets $1 and gets added to pot
 				p2.bet(1);
-				pot += 1;
+				pot.add(1);
 				// P1 folds or not
-				action = foldOrNot(p1, ch1);
+				action = foldOrNot(p1, ch1, rand);
 				if ( action == 'n') {
 					// P1 calls/raises
-					action = callOrRaise(p1, ch1);
+					action = callOrRaise(p1, ch1, rand);
 					if ( action == 'r' ) {
 						// P1 bets $2 and gets added to pot
 						p1.bet(2);
-						pot += 2;
+						pot.add(2);
 						// P2 call/fold
-						action = callOrFold(p2, ch2);
+						action = callOrFold(p2, ch2, rand);
 						if ( action == 'c' ) {
 							// P2 bets $1 and gets added to pot
 							p2.bet(1);
-							pot += 1;
+							pot.add(1);
 							// Showdown: check cards and return winner
 							return checkCards(p1, p2);
 						} else {
@@ -274,7 +289,7 @@ public class DepthKuhnPoker {
 					} else {
 						// P1 bets $1 and gets added to pot
 						p1.bet(1);
-						pot += 1;
+						pot.add(1);
 						// Showdown: check cards and return winner
 						return checkCards(p1, p2);
 					}
@@ -289,22 +304,22 @@ public class DepthKuhnPoker {
 		} else {
 			// P1 bets $1 and gets added to pot
 			p1.bet(1);
-			pot += 1;
+			pot.add(1);
 			// P2 folds or not
-			action = foldOrNot(p2, ch2);
+			action = foldOrNot(p2, ch2, rand);
 			if ( action == 'n' ) {
 				// P2 calls/raises
-				action = callOrRaise(p2, ch2);
+				action = callOrRaise(p2, ch2, rand);
 				if ( action == 'r' ) {
 					// P2 bets $2 and gets added to pot
 					p2.bet(2);
-					pot += 2;
+					pot.add(2);
 					// P1 calls/folds
-					action = callOrFold(p1, ch1);
+					action = callOrFold(p1, ch1, rand);
 					if ( action == 'c' ) {
 						// P1 bets $1 and gets added to pot
 						p1.bet(1);
-						pot += 1;
+						pot.add(1);
 						// Showdown: check cards and return winner
 						return checkCards(p1, p2);
 					} else {
@@ -314,7 +329,7 @@ public class DepthKuhnPoker {
 				} else {
 					// P2 bets $1 and gets added to pot
 					p2.bet(1);
-					pot += 1;
+					pot.add(1);
 					// Showdown: check cards and return winner
 					return checkCards(p1, p2);
 				}
@@ -324,4 +339,72 @@ public class DepthKuhnPoker {
 			}
 		}
 	}
+
+	/*
+	* Getter method for the betting tree followed by chromoHandPlay.
+	*/
+	public static GameTree getGameTree() {
+		return TREE;
+	}
+
+	/*
+	* Return the exact expected winnings of a game between two chromosomes.
+	*/
+	public static double[] chromoExpectedPlay(Chromosome ch1, Chromosome ch2) {
+		return ExactEvaluator.expectedPlay(TREE, ch1, ch2);
+	}
+
+	/*
+	* Methods of the GameVariant interface, played on the betting tree
+	* of the game.
+	*/
+	public String getName() {
+		return "depth";
+	}
+
+	public int getChromoLength() {
+		return TREE.getChromoLength();
+	}
+
+	public GameTree getTree() {
+		return TREE;
+	}
+
+	public int playHand(Chromosome ch1, Chromosome ch2, Random rand) {
+		return HandSimulator.gamePlay(TREE, ch1, ch2, rand);
+	}
+
+	public void playGames(Chromosome ch1, Chromosome ch2, int games, Random rand, HandAccumulator acc) {
+		HandSimulator.playGames(TREE, ch1, ch2, games, rand, acc);
+	}
+
+	public double[] expectedPlay(Chromosome ch1, Chromosome ch2) {
+		return chromoExpectedPlay(ch1, ch2);
+	}
+
+	/*
+	* Builds the betting tree followed by chromoHandPlay, with the same
+	* genes used in every decision and the amount put in the pot by each
+	* player (ante included) at the end of the hand.
+	*/
+	private static GameTree buildGameTree() {
+		GameTree.Builder b = new GameTree.Builder(12);
+		int p1 = GameTree.PLAYER_1;
+		int p2 = GameTree.PLAYER_2;
+
+		// P1 checks, P2 bets $1, P1 raises $2 and P2 calls/folds (gene 9)
+		int p1Raises = b.decision(p2, 9, b.showdown(3, 3), b.fold(p1, 3, 2));
+		// P1 folds or not (gene 3) and calls/raises (gene 6)
+		int p2Bets = b.decision(p1, 3, b.decision(p1, 6, p1Raises, b.showdown(2, 2)), b.fold(p2, 1, 2));
+		// P1 checks and P2 checks/bets (gene 0)
+		int p1Checks = b.decision(p2, 0, p2Bets, b.showdown(1, 1));
+		
+		// P1 bets $1, P2 raises $2 and P1 calls/folds (gene 9)
+		int p2Raises = b.decision(p1, 9, b.showdown(3, 3), b.fold(p2, 2, 3));
+		// P2 folds or not (gene 3) and calls/raises (gene 6)
+		int p1Bets = b.decision(p2, 3, b.decision(p2, 6, p2Raises, b.showdown(2, 2)), b.fold(p1, 2, 1));
+		
+		// P1 checks/bets (gene 0)
+		return b.build(b.decision(p1, 0, p1Bets, p1Checks));
+	}
 }
@@ -0,0 +1,664 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> GaBenchmark.java
+*
+* <dt> Description:
+* <dd> This file consists on a set of benchmarks of the genetic algorithm:
+* hands played per second by every variant, evaluation of populations
+* of several sizes, breeding of generations, selection of chromosomes
+* and filling of fresh populations. Every benchmark is warmed up and
+* then measured in iterations of a fixed time, reporting operations per
+* second together with the memory allocated by all threads (rate and
+* bytes per operation) and the garbage collections run. As in JMH,
+* every benchmark runs in a JVM of its own, started with the options of
+* this one, and only sets up its own data there, so the code compiled
+* for one benchmark does not depend on the benchmarks run before it.
+* Results are written as JSON in the layout used by JMH, so runs on
+* different commits can be compared with the same tools.
+* Run as "java GaBenchmark [file.json] [filter]", where the filter only
+* runs benchmarks whose name contains it.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+
+import evolution.*;
+import gameTree.*;
+import geneticAlgo.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class GaBenchmark {
+	public final static int WARMUP_ITERATIONS = 3;
+	public final static int ITERATIONS = 5;
+	public final static long ITERATION_MILLIS = 1000;
+
+	// Population sizes evaluated, bred and selected from
+	public final static int[] SIZES = { 100, 500, 1010 };
+
+	// Sizes of the fresh populations filled, whose chromosomes per second
+	// should not fall as the size grows
+	public final static int[] FILL_SIZES = { 10000, 100000 };
+
+	// Hands played, and chromosomes selected, in every call of a benchmark
+	public final static int HANDS = 10000;
+	public final static int SELECTIONS = 1000;
+
+	public final static double CROSS_RATE = 0.7;
+	public final static double MUTATE_RATE = 0.01;
+	public final static long SEED = 42;
+
+	// Threads playing sampled games
+	public final static int THREADS = Runtime.getRuntime().availableProcessors();
+
+	// Argument running a single benchmark in a forked JVM
+	public final static String FORK = "--fork";
+
+	// Pool playing sampled games, started by the first benchmark using it
+	private static ForkJoinPool pool;
+
+	// Results of the benchmarks are added to it so they are not optimised
+	// away
+	private static volatile double sink;
+
+	private final static com.sun.management.ThreadMXBean THREADS_BEAN =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/*
+	 * Benchmark, with its parameters, the operations done by every call
+	 * and the threads doing them.
+	 */
+	private static abstract class Benchmark {
+
+		private String name;
+		private String[] params;
+		private long opsPerCall;
+		private String unit;
+		private int threads;
+
+		Benchmark(String n, String[] p, long o, String u, int t) {
+			name = n;
+			params = p;
+			opsPerCall = o;
+			unit = u;
+			threads = t;
+		}
+
+		/*
+		 * Creates the data used by the benchmark, in the JVM running it.
+		 */
+		abstract void setup();
+
+		/*
+		 * Runs the benchmark once, returning a value depending on its result.
+		 */
+		abstract double call();
+	}
+
+	public static void main(String[] args) {
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		addGameBenchmarks(benchmarks);
+		for (int size : SIZES) {
+			addEvaluationBenchmarks(benchmarks, size);
+			addBreedingBenchmarks(benchmarks, size);
+			addSelectionBenchmarks(benchmarks, size);
+		}
+		for (int size : FILL_SIZES) {
+			addFillBenchmarks(benchmarks, size);
+		}
+
+		// Forked JVM: measure a single benchmark and print its result
+		if (args.length > 1 && args[0].equals(FORK)) {
+			THREADS_BEAN.setThreadAllocatedMemoryEnabled(true);
+			Benchmark b = benchmarks.get(Integer.parseInt(args[1]));
+			b.setup();
+			System.out.print(measure(b));
+			if (pool != null) {
+				pool.shutdown();
+			}
+			return;
+		}
+
+		String file = args.length > 0 ? args[0] : null;
+		String filter = args.length > 1 ? args[1] : "";
+
+		StringBuilder json = new StringBuilder("[\n");
+		boolean first = true;
+		for (int i = 0; i < benchmarks.size(); i++) {
+			if (!benchmarks.get(i).name.contains(filter)) {
+				continue;
+			}
+			String result;
+			try {
+				result = fork(i);
+			} catch (IOException e) {
+				System.out.println(e);
+				continue;
+			} catch (InterruptedException e) {
+				System.out.println(e);
+				return;
+			}
+			if (!first) {
+				json.append(",\n");
+			}
+			json.append(result);
+			first = false;
+		}
+		json.append("\n]\n");
+
+		if (file == null) {
+			System.out.print(json);
+		} else {
+			try {
+				FileWriter writer = new FileWriter(file);
+				writer.append(json);
+				writer.close();
+			} catch (IOException e) {
+				System.out.println(e);
+			}
+		}
+	}
+
+	/*
+	 * Runs the benchmark in the given position of the list in a new JVM,
+	 * with the options and class path of this one, and returns its JSON
+	 * result.
+	 */
+	private static String fork(int index) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(GaBenchmark.class.getName());
+		command.add(FORK);
+		command.add(String.valueOf(index));
+
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		Process process = builder.start();
+
+		// Result is read while the benchmark runs, so its output never
+		// fills the pipe
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		InputStream in = process.getInputStream();
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = in.read(buf)) != -1) {
+			out.write(buf, 0, n);
+		}
+		in.close();
+		int exit = process.waitFor();
+		if (exit != 0) {
+			throw new IOException("Benchmark " + index + " failed with exit code " + exit);
+		}
+		return out.toString("UTF-8");
+	}
+
+	/*
+	 * Returns pool playing sampled games, starting it the first time.
+	 */
+	private static ForkJoinPool pool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(THREADS);
+		}
+		return pool;
+	}
+
+	/*
+	 * Adds benchmarks of the hands played by every variant, through the
+	 * betting tree and through the original chromoGamePlay of its class.
+	 */
+	private static void addGameBenchmarks(List<Benchmark> benchmarks) {
+		for (final GameVariant variant : GameVariants.all()) {
+			String[] params = { "variant", variant.getName() };
+
+			benchmarks.add(new Benchmark("playGames", params, HANDS, "hands/s", 1) {
+				Hands h;
+				void setup() {
+					h = new Hands(variant);
+				}
+				double call() {
+					h.acc.reset();
+					variant.playGames(h.ch1, h.ch2, HANDS, h.rand, h.acc);
+					return h.acc.getWins(GameTree.PLAYER_1);
+				}
+			});
+
+			benchmarks.add(new Benchmark("chromoGamePlay", params, HANDS, "hands/s", 1) {
+				Hands h;
+				void setup() {
+					h = new Hands(variant);
+				}
+				double call() {
+					long wins = 0;
+					for (int i = 0; i < HANDS; i++) {
+						wins += chromoGamePlay(variant.getName(), h.ch1, h.ch2, h.rand)[0];
+					}
+					return wins;
+				}
+			});
+		}
+	}
+
+	/*
+	 * Adds benchmarks of the sampled and exact evaluation of a population
+	 * against a fixed strategy, and of two populations against each other.
+	 * Sampled games are played by the THREADS of the pool.
+	 */
+	private static void addEvaluationBenchmarks(List<Benchmark> benchmarks, final int size) {
+		for (final GameVariant variant : GameVariants.all()) {
+			String[] params = { "variant", variant.getName(), "size", String.valueOf(size) };
+
+			benchmarks.add(new Benchmark("evalFitness", params, 1, "ops/s", THREADS) {
+				Evaluation e;
+				void setup() {
+					e = new Evaluation(variant, size);
+				}
+				double call() {
+					e.run.evalFitness(e.p1, e.strategy);
+					return e.p1.getChromo(0).getFitness();
+				}
+			});
+
+			benchmarks.add(new Benchmark("evalFitnessCoevolution", params, 1, "ops/s", THREADS) {
+				Evaluation e;
+				void setup() {
+					e = new Evaluation(variant, size);
+				}
+				double call() {
+					e.run.evalFitness(e.p1, e.p2);
+					return e.p1.getChromo(0).getFitness();
+				}
+			});
+
+			benchmarks.add(new Benchmark("evalExactFitness", params, 1, "ops/s", 1) {
+				Evaluation e;
+				void setup() {
+					e = new Evaluation(variant, size);
+				}
+				double call() {
+					e.run.evalExactFitness(e.p1, e.strategy);
+					return e.p1.getChromo(0).getFitness();
+				}
+			});
+		}
+	}
+
+	/*
+	 * Adds benchmarks of breeding a generation into a new population and
+	 * into the second buffer of an arena.
+	 */
+	private static void addBreedingBenchmarks(List<Benchmark> benchmarks, final int size) {
+		String[] params = { "size", String.valueOf(size) };
+
+		benchmarks.add(new Benchmark("breedGeneration", params, 1, "ops/s", 1) {
+			RunContext run;
+			Population pop;
+			void setup() {
+				run = classicRun(size);
+				pop = evaluatedPopulation(run, 0);
+			}
+			double call() {
+				return run.breedGeneration(pop).getChromo(0).getGene(0);
+			}
+		});
+
+		benchmarks.add(new Benchmark("arenaBreed", params, 1, "ops/s", 1) {
+			GenerationArena arena;
+			void setup() {
+				RunContext run = classicRun(size);
+				arena = new GenerationArena(run, 1);
+				arena.getCurrent().randomizeUniformly();
+				run.evalExactFitness(arena.getCurrent(), randomChromosome(run.getChromoLength(), run.newRandom(2)));
+			}
+			double call() {
+				return arena.breed().getChromo(0).getGene(0);
+			}
+		});
+	}
+
+	/*
+	 * Adds benchmarks of every selection method and of looking a
+	 * chromosome up in a population.
+	 */
+	private static void addSelectionBenchmarks(List<Benchmark> benchmarks, final int size) {
+		String[] params = { "size", String.valueOf(size) };
+
+		benchmarks.add(new Benchmark("selectRouletteWheel", params, SELECTIONS, "ops/s", 1) {
+			Population pop;
+			void setup() {
+				pop = evaluatedPopulation(classicRun(size), 0);
+			}
+			double call() {
+				double sum = 0;
+				for (int i = 0; i < SELECTIONS; i++) {
+					sum += pop.selectRouletteWheel().getFitness();
+				}
+				return sum;
+			}
+		});
+
+		benchmarks.add(new Benchmark("selectRankWheel", params, SELECTIONS, "ops/s", 1) {
+			Population pop;
+			void setup() {
+				pop = evaluatedPopulation(classicRun(size), 0);
+			}
+			double call() {
+				double sum = 0;
+				for (int i = 0; i < SELECTIONS; i++) {
+					sum += pop.selectRankWheel().getFitness();
+				}
+				return sum;
+			}
+		});
+
+		benchmarks.add(new Benchmark("selectTournament", params, SELECTIONS, "ops/s", 1) {
+			Population pop;
+			void setup() {
+				pop = evaluatedPopulation(classicRun(size), 0);
+			}
+			double call() {
+				double sum = 0;
+				for (int i = 0; i < SELECTIONS; i++) {
+					sum += pop.selectTournament(2).getFitness();
+				}
+				return sum;
+			}
+		});
+
+		benchmarks.add(new Benchmark("contains", params, SELECTIONS, "ops/s", 1) {
+			Population pop;
+			Chromosome absent;
+			void setup() {
+				RunContext run = classicRun(size);
+				pop = evaluatedPopulation(run, 0);
+				absent = randomChromosome(run.getChromoLength(), run.newRandom(2));
+			}
+			double call() {
+				int found = 0;
+				for (int i = 0; i < SELECTIONS; i++) {
+					Chromosome ch = (i % 2 == 0) ? pop.getChromo(i % pop.getSize()) : absent;
+					if (pop.contains(ch, pop.getSize())) {
+						found++;
+					}
+				}
+				return found;
+			}
+		});
+	}
+
+	/*
+	 * Adds benchmark of filling a fresh packed population, as the first
+	 * breeding of an arena does, with its placeholder rows already
+	 * indexed so every chromosome set replaces one of them in the index.
+	 */
+	private static void addFillBenchmarks(List<Benchmark> benchmarks, final int size) {
+		String[] params = { "size", String.valueOf(size) };
+
+		benchmarks.add(new Benchmark("fillPopulation", params, size, "chromos/s", 1) {
+			Population source;
+			void setup() {
+				RunContext run = classicRun(size);
+				source = run.newPopulation(0);
+				source.randomizeUniformly();
+			}
+			double call() {
+				PackedPopulation pop = new PackedPopulation(size, source.getChromoLength(), CROSS_RATE, MUTATE_RATE);
+				pop.contains(source.getChromo(0), size);
+				for (int i = 0; i < size; i++) {
+					pop.setChromo(i, source.getChromo(i));
+				}
+				return pop.getChromo(size - 1).getGene(0);
+			}
+		});
+	}
+
+	/*
+	 * Chromosomes and generator of the hand benchmarks of a variant.
+	 */
+	private static class Hands {
+
+		private Random rand;
+		private Chromosome ch1;
+		private Chromosome ch2;
+		private HandAccumulator acc;
+
+		Hands(GameVariant variant) {
+			rand = RandomStream.forStream(SEED, 1);
+			ch1 = randomChromosome(variant.getChromoLength(), rand);
+			ch2 = randomChromosome(variant.getChromoLength(), rand);
+			acc = new HandAccumulator();
+		}
+	}
+
+	/*
+	 * Populations and strategy of the evaluation benchmarks of a variant.
+	 */
+	private static class Evaluation {
+
+		private RunContext run;
+		private Population p1;
+		private Population p2;
+		private Chromosome strategy;
+
+		Evaluation(GameVariant variant, int size) {
+			run = new RunContext(variant, size, CROSS_RATE, MUTATE_RATE, 0, SEED, pool());
+			p1 = evaluatedPopulation(run, 0);
+			p2 = evaluatedPopulation(run, 1);
+			strategy = randomChromosome(run.getChromoLength(), run.newRandom(2));
+		}
+	}
+
+	/*
+	 * Warms a benchmark up and measures it, returning its JSON result.
+	 */
+	private static String measure(Benchmark b) {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iteration(b);
+		}
+
+		double[][] raw = new double[ITERATIONS][];
+		for (int i = 0; i < ITERATIONS; i++) {
+			raw[i] = iteration(b);
+		}
+
+		// Operations per second, allocation rate in MB/s, bytes allocated
+		// by every operation, collections and milliseconds spent in them
+		double[][] metrics = new double[5][ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			double seconds = raw[i][1] / 1e9;
+			metrics[0][i] = raw[i][0] / seconds;
+			metrics[1][i] = raw[i][2] / seconds / (1024 * 1024);
+			metrics[2][i] = raw[i][2] / raw[i][0];
+			metrics[3][i] = raw[i][3];
+			metrics[4][i] = raw[i][4];
+		}
+
+		System.err.println(String.format(Locale.ROOT, "%-24s %-28s %14.1f %s %12.1f B/op",
+				b.name, paramString(b.params), mean(metrics[0]), b.unit, mean(metrics[2])));
+
+		StringBuilder json = new StringBuilder();
+		json.append("  {\n");
+		json.append("    \"benchmark\" : \"GaBenchmark.").append(b.name).append("\",\n");
+		json.append("    \"mode\" : \"thrpt\",\n");
+		json.append("    \"threads\" : ").append(b.threads).append(",\n");
+		json.append("    \"forks\" : 1,\n");
+		json.append("    \"warmupIterations\" : ").append(WARMUP_ITERATIONS).append(",\n");
+		json.append("    \"measurementIterations\" : ").append(ITERATIONS).append(",\n");
+		json.append("    \"measurementTime\" : \"").append(ITERATION_MILLIS).append(" ms\",\n");
+		json.append("    \"params\" : {");
+		for (int p = 0; p < b.params.length; p += 2) {
+			json.append(p == 0 ? " " : ", ").append('"').append(b.params[p]).append("\" : \"").append(b.params[p+1]).append('"');
+		}
+		json.append(" },\n");
+		json.append("    \"primaryMetric\" : ").append(metric(metrics[0], b.unit)).append(",\n");
+		json.append("    \"secondaryMetrics\" : {\n");
+		json.append("      \"gc.alloc.rate\" : ").append(metric(metrics[1], "MB/sec")).append(",\n");
+		json.append("      \"gc.alloc.rate.norm\" : ").append(metric(metrics[2], "B/op")).append(",\n");
+		json.append("      \"gc.count\" : ").append(metric(metrics[3], "counts")).append(",\n");
+		json.append("      \"gc.time\" : ").append(metric(metrics[4], "ms")).append("\n");
+		json.append("    }\n");
+		json.append("  }");
+		return json.toString();
+	}
+
+	/*
+	 * Calls a benchmark for ITERATION_MILLIS, returning operations done,
+	 * nanoseconds taken, bytes allocated, collections and milliseconds
+	 * spent in them.
+	 */
+	private static double[] iteration(Benchmark b) {
+		double result = 0;
+		long calls = 0;
+		long gcCount = gcCount();
+		long gcTime = gcTime();
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+		long end = start + ITERATION_MILLIS * 1000000;
+		long now;
+		do {
+			result += b.call();
+			calls++;
+			now = System.nanoTime();
+		} while (now < end);
+		long bytes = allocatedBytes() - allocated;
+		sink += result;
+		return new double[] { calls * b.opsPerCall, now - start, bytes, gcCount() - gcCount, gcTime() - gcTime };
+	}
+
+	/*
+	 * Returns bytes allocated so far by all live threads, including those
+	 * of the pool playing sampled games.
+	 */
+	private static long allocatedBytes() {
+		long total = 0;
+		for (long bytes : THREADS_BEAN.getThreadAllocatedBytes(THREADS_BEAN.getAllThreadIds())) {
+			if (bytes > 0) {
+				total += bytes;
+			}
+		}
+		return total;
+	}
+
+	/*
+	 * Returns collections run so far by all collectors.
+	 */
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	/*
+	 * Returns milliseconds spent so far in collections by all collectors.
+	 */
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+
+	/*
+	 * Returns JSON of a metric: its mean, the half width of its 99.9%
+	 * confidence interval and the value of every iteration.
+	 */
+	private static String metric(double[] values, String unit) {
+		double mean = mean(values);
+		double var = 0;
+		for (double v : values) {
+			var += (v - mean) * (v - mean);
+		}
+		double error = values.length > 1 ? 3.29 * Math.sqrt(var / (values.length - 1) / values.length) : Double.NaN;
+
+		StringBuilder json = new StringBuilder("{ ");
+		json.append("\"score\" : ").append(number(mean)).append(", ");
+		json.append("\"scoreError\" : ").append(number(error)).append(", ");
+		json.append("\"scoreUnit\" : \"").append(unit).append("\", ");
+		json.append("\"rawData\" : [ [ ");
+		for (int i = 0; i < values.length; i++) {
+			json.append(i == 0 ? "" : ", ").append(number(values[i]));
+		}
+		return json.append(" ] ] }").toString();
+	}
+
+	/*
+	 * Returns JSON number, or the string "NaN" as JMH writes it.
+	 */
+	private static String number(double v) {
+		return Double.isNaN(v) || Double.isInfinite(v) ? "\"NaN\"" : String.valueOf(v);
+	}
+
+	private static double mean(double[] values) {
+		double sum = 0;
+		for (double v : values) {
+			sum += v;
+		}
+		return sum / values.length;
+	}
+
+	private static String paramString(String[] params) {
+		StringBuilder str = new StringBuilder();
+		for (int p = 0; p < params.length; p += 2) {
+			str.append(p == 0 ? "" : " ").append(params[p]).append('=').append(params[p+1]);
+		}
+		return str.toString();
+	}
+
+	/*
+	 * Returns settings of a run of classic Kuhn Poker, used by the
+	 * breeding and selection benchmarks.
+	 */
+	private static RunContext classicRun(int size) {
+		return new RunContext(GameVariants.forName("classic"), size, CROSS_RATE, MUTATE_RATE, 0, SEED, pool());
+	}
+
+	/*
+	 * Returns population of the given player, with random genes and exact
+	 * fitness against a random strategy, so selection has fitness to use.
+	 */
+	private static Population evaluatedPopulation(RunContext run, int player) {
+		Population pop = run.newPopulation(player);
+		pop.randomizeUniformly();
+		run.evalExactFitness(pop, randomChromosome(run.getChromoLength(), run.newRandom(2)));
+		return pop;
+	}
+
+	private static Chromosome randomChromosome(int length, Random rand) {
+		Chromosome ch = new Chromosome(length);
+		for (int g = 0; g < length; g++) {
+			ch.setGene(g, rand.nextDouble());
+		}
+		return ch;
+	}
+
+	/*
+	 * Plays a hand with the chromoGamePlay method of the variant's class.
+	 */
+	private static int[] chromoGamePlay(String variant, Chromosome ch1, Chromosome ch2, Random rand) {
+		if (variant.equals("depth")) {
+			return DepthKuhnPoker.chromoGamePlay(ch1, ch2, rand);
+		} else if (variant.equals("breadth")) {
+			return BreadthKuhnPoker.chromoGamePlay(ch1, ch2, rand);
+		} else if (variant.equals("complex")) {
+			return ComplexKuhnPoker.chromoGamePlay(ch1, ch2, rand);
+		}
+		return ClassicKuhnPoker.chromoGamePlay(ch1, ch2, rand);
+	}
+}
@@ -11,13 +11,22 @@
 * game will be used. Can be set to 18 to add another betting round, 
 * to 12 to add additional betting choices ($1, $2, $10) and, finally,
 * to 36 to add both an additional round and extra betting options.
+* Any other variant can be played by passing, as second argument, a file
+* describing its betting tree (see TreeParser and the variants folder),
+* whose chromosome length is found from the description.
 * </dl>
 *
 * @author Paula Lopez Pozuelo
 */
 
+import evolution.*;
+import gameTree.*;
 import geneticAlgo.*;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+
 public class GeneticAlgo {
 	public final static int GENERATIONS = 100;
 	public final static int SIZE = 1010;
@@ -38,213 +47,112 @@ public class GeneticAlgo {
 	
 	// Set chromo length for added breadth and depth Kuhn Poker
 	//public final static int CHROMO_LENGTH = 36;
-  
-	/*
-	* Evaluate fitness of two populations through co-evolution.
-	*/
-	public static void evalFitness(Population p1, Population p2) {
-	    
-		// Set all fitness values to zero in both populations
-		for (int i = 0; i < SIZE; i++) {
-			p1.getChromo(i).resetFitness();
-			p2.getChromo(i).resetFitness();
-		}
-		
-		// Play every chromosome in every population against each other,
-		// adding wins of gameplays to their fitnesses
-		double[][] wins = new double[2][SIZE];
-		int[] gameResult = new int[2];
-		
-		// Loop through chromosomes of population 1
-		for (int i = 0; i < SIZE; i++) {
-			// Loop through chromosomes of population 2
-			for (int j = 0; j < SIZE; j++) {
-				switch(CHROMO_LENGTH) {
-					case 6:
-						gameResult = ClassicKuhnPoker.chromoGamePlay(p1.getChromo(i), p2.getChromo(j));
-						break;
-					case 18:
-						gameResult = BreadthKuhnPoker.chromoGamePlay(p1.getChromo(i), p2.getChromo(j));
-						break;
-					case 12:
-						gameResult = DepthKuhnPoker.chromoGamePlay(p1.getChromo(i), p2.getChromo(j));
-						break;
-					case 36:
-						gameResult = ComplexKuhnPoker.chromoGamePlay(p1.getChromo(i), p2.getChromo(j));
-						break;
-				}
-				
-				wins[0][i] += gameResult[0];
-				wins[1][j] += gameResult[1];
-				
-				// Mixed approach (with rational player)
-				// gameResult = KuhnPoker.chromoGamePlay(p1.getChromo(i), rational);	
-				// wins[0][i] += gameResult[0];
-				// wins[1][j] += gameResult[1];
-				// wins[0][i] /= 2;
-				// wins[1][j] /= 2;
-			}
-		}
-		
-		// Divide into number of games to get average win
-		for (int i = 0; i < SIZE; i++) {
-			p1.getChromo(i).setFitness(Math.pow(wins[0][i]/(SIZE), 1));
-			p2.getChromo(i).setFitness(Math.pow(wins[1][i]/(SIZE), 1));
-		}
-	}
 	
-	/*
-	* Evaluate fitness of population against strategy as a first player.
-	*/
-	public static void evalFitness(Population p1, Chromosome strategy) {
-	    
-		// Set all fitness values to zero in both populations
-		for (int i = 0; i < SIZE; i++) {
-			p1.getChromo(i).resetFitness();
-		}
-		
-		// Play every chromosome in every population against each other,
-		// adding wins of gameplays to their fitnesses
-		double[] wins = new double[SIZE];
-		int[] gameResult = new int[2];
-		
-		// Loop through chromosomes of population 1
-		for (int i = 0; i < SIZE; i++) {
-			for (int j = 0; j < SIZE; j++) {
-				switch(CHROMO_LENGTH) {
-					case 6:
-						gameResult = ClassicKuhnPoker.chromoGamePlay(p1.getChromo(i), strategy);
-						break;
-					case 18:
-						gameResult = BreadthKuhnPoker.chromoGamePlay(p1.getChromo(i), strategy);
-						break;
-					case 12:
-						gameResult = DepthKuhnPoker.chromoGamePlay(p1.getChromo(i), strategy);
-						break;
-					case 36:
-						gameResult = ComplexKuhnPoker.chromoGamePlay(p1.getChromo(i), strategy);
-						break;
-				}
-				wins[i] += gameResult[0];
-			}
-		}
-		
-		// Divide into number of games to get average win
-		for (int i = 0; i < SIZE; i++) {
-			p1.getChromo(i).setFitness(Math.pow(wins[i]/(SIZE), 1));
-		}
-	}
+	// Number of threads used to play sampled games (1 to run sequentially)
+	public final static int THREADS = Runtime.getRuntime().availableProcessors();
 	
-	/*
-	* Evaluate fitness of population against strategy as a second player.
-	*/
-	public static void evalFitness(Chromosome strategy, Population p2) {
-	    
-		// Set all fitness values to zero in both populations
-		for (int i = 0; i < SIZE; i++) {
-			p2.getChromo(i).resetFitness();
-		}
-		
-		// Play every chromosome in every population against each other,
-		// adding wins of gameplays to their fitnesses
-		double[] wins = new double[SIZE];
-		int[] gameResult = new int[2];
-		
-		// Play each chromosome against the given strategy
-		for (int i = 0; i < SIZE; i++) {
-			for (int j = 0; j < SIZE; j++) {
-				switch(CHROMO_LENGTH) {
-					case 6:
-						gameResult = ClassicKuhnPoker.chromoGamePlay(strategy, p2.getChromo(i));
-						break;
-					case 18:
-						gameResult = BreadthKuhnPoker.chromoGamePlay(strategy, p2.getChromo(i));
-						break;
-					case 12:
-						gameResult = DepthKuhnPoker.chromoGamePlay(strategy, p2.getChromo(i));
-						break;
-					case 36:
-						gameResult = ComplexKuhnPoker.chromoGamePlay(strategy, p2.getChromo(i));
-						break;
-				}
-				wins[i] += gameResult[0];
-			}
-		}
-		
-		// Divide into number of games to get average win
-		for (int i = 0; i < SIZE; i++) {
-			p2.getChromo(i).setFitness(Math.pow(wins[i]/(SIZE), 1));
-		}
-	}
+	// Whether sampled games of a generation replay a shared table of deals
+	// and decision draws, so all chromosomes face the same luck
+	public final static boolean COMMON_RANDOM_NUMBERS = false;
+	
+	// Chromosomes whose fitness against a fixed strategy is remembered, so
+	// unchanged copies are not evaluated again (0 to disable the cache).
+	// The cache is not checkpointed, so a run with sampled fitness is
+	// only resumed exactly with the cache off
+	public final static int CACHE_SIZE = 0;
+	
+	// Whether only chromosomes whose genes changed since their last
+	// evaluation against a fixed strategy are evaluated, and games played
+	// to refine the sampled fitness of the unchanged ones (0 for none)
+	public final static boolean INCREMENTAL = false;
+	public final static int REFINE_GAMES = 0;
+	
+	// Number of islands population 1 is split into, each evolved on its
+	// own thread (0 to evolve a single population), generations between
+	// migrations and chromosomes sent by every island
+	public final static int ISLANDS = 0;
+	public final static int MIGRATION_INTERVAL = 10;
+	public final static int MIGRANTS = 2;
+	public final static IslandModel.Topology TOPOLOGY = IslandModel.Topology.RING;
+	
+	// Number of worker processes playing sampled games (0 to play them in
+	// this JVM), and batches sent to a worker before reading its answers
+	public final static int WORKERS = 0;
+	public final static int PIPELINE_DEPTH = 4;
+	
+	// Generations between checkpoints of the run (0 to disable them, as
+	// by default) and file they are saved to. A run is resumed with the
+	// arguments "resume <file>"
+	public final static int CHECKPOINT_INTERVAL = 0;
+	public final static String CHECKPOINT_FILE = "checkpoint.bin";
 
-  
-	/*
-	* Breed and return new generation from an old one.
-	*/
-	public static Population breedGeneration(Population oldPop) {
-		// Create new population
-		Population newPop = new Population(SIZE, CHROMO_LENGTH, CROSS_RATE, MUTATE_RATE);
-		
-		// Generation counter
-		int count = 0;
-		
-		// Sort population when there is elitism bigger than zero
-		if (ELITE_COUNT > 0) {
-			oldPop.sort();
-		}
-		
-		while ( count < SIZE ) {
-			Chromosome[] chromo = new Chromosome[2];
-			
-			// Take best chromosomes and reinsert them unaltered.
-			if (count < ELITE_COUNT) {
-				  chromo[0] = new Chromosome(oldPop.getChromo(count));
-				  chromo[1] = new Chromosome(oldPop.getChromo(count+1));
-				// For the rest, take chromosomes using Roulete wheel selection and
-				// then crossover/mutate them.
-			} else {
-				// Select two chromosomes with tournament selection 
-				chromo[0] = new Chromosome(oldPop.selectTournament(2));
-				chromo[1] = new Chromosome(oldPop.selectTournament(2));
-				
-				// Select two chromosomes with roulette wheel
-				//chromo[0] = new Chromosome(oldPop.selectRouletteWheel());
-				//chromo[1] = new Chromosome(oldPop.selectRouletteWheel());
-				
-				// Select two chromosomes with rank wheel
-				//chromo[0] = new Chromosome(oldPop.selectRankWheel());
-				//chromo[1] = new Chromosome(oldPop.selectRankWheel());
-				
-				// Crossover chromosomes with Uniform crossover
-				chromo = Population.uniformCrossover(chromo);
-				
-				// Crossover chromosomes with One-Point crossover
-				//chromo = Population.onePointCrossover(chromo);
-				
-				// Mutate chromosomes
-				chromo[0] = new Chromosome(Population.mutate(chromo[0]));
-				chromo[1] = new Chromosome(Population.mutate(chromo[1]));
-			}
-			
-			// Add resulting chromosomes to new population, making sure that they are
-			// not clones of other members of population
-			if (!newPop.contains(chromo[0], count)) {
-				newPop.setChromo(count, chromo[0]);
-				count += 1;
-			} 
-			if (count < SIZE && !newPop.contains(chromo[1], count)) {
-				newPop.setChromo(count, chromo[1]);
-				count += 1;
-			}
-		}
-		
-		return newPop;
-	}
-  
     public static void main(String[] args) {
     	
+    	// Checkpoint the run is resumed from, if any
+    	Checkpoint resume = null;
+    	if (args.length > 1 && args[0].equals("resume")) {
+    		try {
+    			resume = Checkpoint.read(Paths.get(args[1]));
+    		} catch (IOException e) {
+    			System.out.println(e);
+    			return;
+    		}
+    	}
+    	
+    	// Seed of the run (can be passed as first argument to repeat a run),
+    	// every random stream used is derived from it
+    	long seed = System.nanoTime();
+    	if (resume != null) {
+    		seed = resume.getSeed();
+    	} else if (args.length > 0) {
+    		seed = Long.parseLong(args[0]);
+    	}
+    	
+    	// Variant played, chosen by CHROMO_LENGTH or by name as second
+    	// argument (classic, depth, breadth, complex or the path of a file
+    	// describing the betting tree)
+    	GameVariant variant = GameVariants.forChromoLength(CHROMO_LENGTH);
+    	if (resume != null) {
+    		variant = GameVariants.forName(resume.getVariant());
+    	} else if (args.length > 1) {
+    		variant = GameVariants.forName(args[1]);
+    	}
+    	
+    	// Checkpoint must hold both populations of this run
+    	if (resume != null) {
+    		try {
+    			resume.check(2, SIZE, variant.getChromoLength());
+    		} catch (IOException e) {
+    			System.out.println(e);
+    			return;
+    		}
+    	}
+    	
+    	// Settings of the run, playing sampled games on a pool of THREADS
+    	ForkJoinPool pool = new ForkJoinPool(THREADS);
+    	RunContext run = new RunContext(variant, SIZE, CROSS_RATE, MUTATE_RATE, ELITE_COUNT, seed, pool);
+    	if (COMMON_RANDOM_NUMBERS) {
+    		run.setEvaluator(new ParallelEvaluator(variant, pool, true));
+    	}
+    	if (CACHE_SIZE > 0) {
+    		run.setFitnessCache(new FitnessCache(CACHE_SIZE, run.getChromoLength()));
+    	}
+    	run.setIncremental(INCREMENTAL, REFINE_GAMES);
+    	
+    	// Play sampled games on worker processes launched on this machine
+    	WorkerFarm farm = null;
+    	if (WORKERS > 0) {
+    		try {
+    			farm = WorkerFarm.launch(variant, WORKERS, PIPELINE_DEPTH);
+    		} catch (IOException e) {
+    			System.out.println(e);
+    			return;
+    		}
+    		run.setEvaluator(farm);
+    	}
+    	
     	// Folder player strategy
-        Chromosome folder = new Chromosome(CHROMO_LENGTH);
+        Chromosome folder = new Chromosome(run.getChromoLength());
     	folder.setGene(0, 0);
     	folder.setGene(1, 0);
     	folder.setGene(2, 0);
@@ -253,7 +161,7 @@ public class GeneticAlgo {
     	folder.setGene(5, 0);
 
     	// Shy player strategy
-        Chromosome shy = new Chromosome(CHROMO_LENGTH);
+        Chromosome shy = new Chromosome(run.getChromoLength());
         shy.setGene(0, 0);
         shy.setGene(1, 0);
         shy.setGene(2, 0);
@@ -262,7 +170,7 @@ public class GeneticAlgo {
         shy.setGene(5, 1);
 
         // Safe player strategy
-        Chromosome safe = new Chromosome(CHROMO_LENGTH);
+        Chromosome safe = new Chromosome(run.getChromoLength());
         safe.setGene(0, 0);
         safe.setGene(1, 0);
         safe.setGene(2, 1);
@@ -271,7 +179,7 @@ public class GeneticAlgo {
         safe.setGene(5, 1);
 
         // Caller player strategy
-        Chromosome caller = new Chromosome(CHROMO_LENGTH);
+        Chromosome caller = new Chromosome(run.getChromoLength());
         caller.setGene(0, 1);
         caller.setGene(1, 1);
         caller.setGene(2, 1);
@@ -280,7 +188,7 @@ public class GeneticAlgo {
         caller.setGene(5, 1);
 
         // Rational player strategy
-        Chromosome rational = new Chromosome(CHROMO_LENGTH);
+        Chromosome rational = new Chromosome(run.getChromoLength());
         rational.setGene(0, 0);
         rational.setGene(1, 0.5);
         rational.setGene(2, 1);
@@ -289,7 +197,7 @@ public class GeneticAlgo {
         rational.setGene(5, 1);
 
         // Bluffer player strategy
-        Chromosome bluffer = new Chromosome(CHROMO_LENGTH);
+        Chromosome bluffer = new Chromosome(run.getChromoLength());
         bluffer.setGene(0, 0.5);
         bluffer.setGene(1, 0.7);
         bluffer.setGene(2, 1);
@@ -303,84 +211,202 @@ public class GeneticAlgo {
 	    System.out.println("Crossover rate: " + CROSS_RATE);
 	    System.out.println("Mutation rate: " + MUTATE_RATE);
 	    System.out.println("Elitism: " + ELITE_COUNT);
+	    System.out.println("Variant: " + variant.getName());
+	    System.out.println("Seed: " + seed);
 	
-	    String csvFile = "";
+	    // Evolve population 1 against rational player on islands
+	    if (ISLANDS > 0) {
+	    	IslandModel model = new IslandModel(run, run.exactFitnessAgainst(rational, GameTree.PLAYER_1), GameTree.PLAYER_1, ISLANDS, MIGRATION_INTERVAL, MIGRANTS, TOPOLOGY);
+	    	try {
+	    		model.run(GENERATIONS);
+	    	} catch (InterruptedException e) {
+	    		System.out.println(e);
+	    		return;
+	    	}
+	    	for (int i = 0; i < model.getIslands(); i++) {
+	    		System.out.println("Island " + i + ": fittest " + model.getIsland(i).getFittest().getFitness() + ", average " + model.getIsland(i).avgFitness() + ", " + model.getGenerationsPerSecond(i) + " generations/s, " + model.getEvaluationsPerSecond(i) + " evaluations/s");
+	    	}
+	    	System.out.println("Fittest chromosome of all islands has fitness: " + model.getFittest().getFitness());
+	    	System.out.println(model.getFittest().toString());
+	    	if (farm != null) {
+	    		farm.close();
+	    	}
+	    	return;
+	    }
+	
+	    // Sink appending a row of metrics to the csv file every generation,
+	    // after the rows up to the generation resumed from, if any
+	    MetricsSink metrics;
+	    try {
+	    	metrics = new MetricsSink(Paths.get("test.csv"), (resume != null) ? resume.getGeneration() : 0);
+	    } catch (IOException e) {
+	    	System.out.println(e);
+	    	return;
+	    }
 	
 	    // Array to hold fittest chromosomes in populations.
 	    Chromosome[] fittestChromo = new Chromosome[2];
-	    fittestChromo[0] = new Chromosome(CHROMO_LENGTH);
-	    fittestChromo[1] = new Chromosome(CHROMO_LENGTH);
+	    fittestChromo[0] = new Chromosome(run.getChromoLength());
+	    fittestChromo[1] = new Chromosome(run.getChromoLength());
 	
-	    // Create two initial populations (p1 and p2).
-	    Population[] oldPopulation = new Population[2];
-	    oldPopulation[0] = new Population(SIZE, CHROMO_LENGTH, CROSS_RATE, MUTATE_RATE);
-	    oldPopulation[1] = new Population(SIZE, CHROMO_LENGTH, CROSS_RATE, MUTATE_RATE);
+	    // Create two initial populations (p1 and p2), each in an arena that
+	    // breeds it into a second buffer allocated once. Each population has
+	    // its own random stream derived from the seed
+	    GenerationArena[] arena = new GenerationArena[2];
+	    arena[0] = new GenerationArena(run, 0);
+	    arena[1] = new GenerationArena(run, 1);
+	    Population[] population = new Population[2];
+	    population[0] = arena[0].getCurrent();
+	    population[1] = arena[1].getCurrent();
 	    
-	    // Randomize uniformly initial population
-	    oldPopulation[0].randomizeUniformly();
-	    oldPopulation[1].randomizeUniformly();
+	    // Random streams of the run, saved in checkpoints
+	    RandomStream[] streams = new RandomStream[3];
+	    streams[0] = arena[0].getRandom();
+	    streams[1] = arena[1].getRandom();
+	    streams[2] = run.getEvaluationRandom();
 	    
-	    // Randomize uniformly initial population
-	    //oldPopulation[0].randomize();
-	    //oldPopulation[1].randomize();
-	
-	    // Evaluate fitness rates of chromosomes in initial population
-	    //evalFitness(oldPopulation[0], oldPopulation[1]);
-		evalFitness(oldPopulation[0], rational);
-		//evalFitness(rational, oldPopulation[1]);
-	
-	    // Print outcome
-	    System.out.println("First generation created. Fittest chromosomes: " + oldPopulation[0].getFittest().getFitness() + " and " + oldPopulation[1].getFittest().getFitness());
-	    System.out.println("Average fitness: " + oldPopulation[0].avgFitness() + " and " + oldPopulation[1].avgFitness());
-	    System.out.println(" > Player 1 chromosome: \n" + oldPopulation[0].getFittest().toString());
-	    System.out.println(" > Player 2 chromosome: \n" + oldPopulation[1].getFittest().toString()); 
-	
-	    // Create array to hold two new populations
-	    Population[] newPopulation = new Population[2];
-	    newPopulation[0] = new Population(SIZE, CHROMO_LENGTH, CROSS_RATE, MUTATE_RATE);
-	    newPopulation[1] = new Population(SIZE, CHROMO_LENGTH, CROSS_RATE, MUTATE_RATE);
+	    // Writer saving checkpoints in the background
+	    CheckpointWriter checkpoints = null;
+	    if (CHECKPOINT_INTERVAL > 0) {
+	    	checkpoints = new CheckpointWriter(Paths.get(CHECKPOINT_FILE), 2, SIZE, run.getChromoLength(), 2, streams.length);
+	    }
+	    
+	    // First generation to breed
+	    int first = 0;
+	    
+	    if (resume != null) {
+	    	// Restore populations, fittest chromosomes and random streams
+	    	try {
+	    		resume.restore(new PackedPopulation[] { arena[0].getCurrent(), arena[1].getCurrent() }, fittestChromo, streams);
+	    	} catch (IOException e) {
+	    		System.out.println(e);
+	    		return;
+	    	}
+	    	first = resume.getGeneration();
+	    	System.out.println("Resumed from generation " + first);
+	    } else {
+		    // Randomize uniformly initial population
+		    population[0].randomizeUniformly();
+		    population[1].randomizeUniformly();
+		    
+		    // Randomize uniformly initial population
+		    //population[0].randomize();
+		    //population[1].randomize();
+		
+		    // Evaluate fitness rates of chromosomes in initial population
+		    //run.evalExactFitness(population[0], population[1]);
+			run.evalExactFitness(population[0], rational);
+			//run.evalExactFitness(rational, population[1]);
+			
+			// Sampled evaluation of fitness rates
+			//run.evalFitness(population[0], rational);
+		
+		    // Print outcome
+		    PopulationStats[] stats = { population[0].getStats(), population[1].getStats() };
+		    System.out.println("First generation created. Fittest chromosomes: " + stats[0].getBest() + " and " + stats[1].getBest());
+		    System.out.println("Average fitness: " + stats[0].getMean() + " and " + stats[1].getMean());
+		    System.out.println(" > Player 1 chromosome: \n" + population[0].getChromo(stats[0].getBestIndex()).toString());
+		    System.out.println(" > Player 2 chromosome: \n" + population[1].getChromo(stats[1].getBestIndex()).toString()); 
+	    }
 	
-	    for (int i = 0; i < GENERATIONS; i++) {
+	    for (int i = first; i < GENERATIONS; i++) {
 	
-			// Breed new generations from previous ones.
-			newPopulation[0] = new Population(breedGeneration(oldPopulation[0]));
-			newPopulation[1] = new Population(breedGeneration(oldPopulation[1]));
+			// Breed new generations from previous ones, which are overwritten
+			// by the following generation
+			population[0] = arena[0].breed();
+			population[1] = arena[1].breed();
+			
+			// Breed new generations copying the previous ones
+			//population[0] = run.breedGeneration(population[0]);
+			//population[1] = run.breedGeneration(population[1]);
+			
+			// Time spent and games played evaluating the generation
+			long evalStart = System.nanoTime();
+			long gamesBefore = run.getGamesPlayed();
 			
 			// Evaluate the fitness of the populations through co-evolution
-			//evalFitness(newPopulation[0], newPopulation[1]);
+			//run.evalExactFitness(population[0], population[1]);
 			
 			// Evaluate the fitness population 1 against rational player
-			evalFitness(newPopulation[0], rational);
+			run.evalExactFitness(population[0], rational);
 			
 			// Evaluate the fitness of population 2 against rational player
-			//evalFitness(rational, newPopulation[1]);
+			//run.evalExactFitness(rational, population[1]);
+			
+			// Sampled evaluation of population 1 against rational player
+			//run.evalFitness(population[0], rational);
+			
+			// Sampled evaluation of population 1 against rational player,
+			// racing chromosomes so those surely below the cut stop early
+			//run.evalRacingFitness(population[0], rational);
+			
+			double evalMillis = (System.nanoTime() - evalStart) / 1e6;
+			double gamesPerSecond = (run.getGamesPlayed() - gamesBefore) / (evalMillis / 1e3);
+			
+			// Statistics gathered while evaluating the generation
+			PopulationStats[] stats = { population[0].getStats(), population[1].getStats() };
+			Chromosome[] fittest = { population[0].getChromo(stats[0].getBestIndex()), population[1].getChromo(stats[1].getBestIndex()) };
 			
 			// Print outcome of generation
-			System.out.println("Generation " + (i+1) + " created. Fittest chromosomes: " + newPopulation[0].getFittest().getFitness() + " and " + newPopulation[1].getFittest().getFitness());
-			System.out.println("Average fitness: " + newPopulation[0].avgFitness() + " and " + newPopulation[1].avgFitness());
-			System.out.println(" > Player 1 chromosome: \n" + newPopulation[0].getFittest().toString());
-			System.out.println(" > Player 2 chromosome: \n" + newPopulation[1].getFittest().toString());
+			System.out.println("Generation " + (i+1) + " created. Fittest chromosomes: " + stats[0].getBest() + " and " + stats[1].getBest());
+			System.out.println("Average fitness: " + stats[0].getMean() + " and " + stats[1].getMean());
+			System.out.println(" > Player 1 chromosome: \n" + fittest[0].toString());
+			System.out.println(" > Player 2 chromosome: \n" + fittest[1].toString());
 			
-			// Save outcome to string to generate a csv in the end
-			csvFile += (i+1) + ", " + (newPopulation[0].avgFitness()) + ", " + (newPopulation[0].getFittest().getFitness()) + "\n";
+			// Save outcome of population 1 to the csv file
+			try {
+				metrics.write(i+1, stats[0].getMean(), stats[0].getBest(), evalMillis, gamesPerSecond, stats[0].getDiversity());
+			} catch (Exception e) {
+				System.out.println(e);
+			}
 	
-			// Keep track of fittest chromosome in Population 1
-			if (fittestChromo[0].getFitness() < newPopulation[0].getFittest().getFitness()){
-				fittestChromo[0] = new Chromosome(newPopulation[0].getFittest());
+			// Keep track of fittest chromosome in Population 1 (copied, as the
+			// population will be overwritten)
+			if (fittestChromo[0].getFitness() < stats[0].getBest()){
+				fittestChromo[0] = new Chromosome(fittest[0]);
 			}
 	
 			// Keep track of fittest chromosome in Population 2
-			if (fittestChromo[1].getFitness() < newPopulation[1].getFittest().getFitness()){
-				fittestChromo[1] = new Chromosome(newPopulation[1].getFittest());
+			if (fittestChromo[1].getFitness() < stats[1].getBest()){
+				fittestChromo[1] = new Chromosome(fittest[1]);
 			}
-		      
-			// New population becomes old population to be used for next generation breeding
-			oldPopulation[0] = new Population(newPopulation[0]);
-			oldPopulation[1] = new Population(newPopulation[1]);
+			
+			// Save checkpoint of the run, written while the next generations
+			// are bred
+			if (CHECKPOINT_INTERVAL > 0 && checkpoints != null && (i+1) % Math.max(CHECKPOINT_INTERVAL, 1) == 0) {
+				try {
+					checkpoints.save(seed, variant.getName(), i+1, new PackedPopulation[] { arena[0].getCurrent(), arena[1].getCurrent() }, fittestChromo, streams);
+				} catch (InterruptedException e) {
+					System.out.println(e);
+				}
+			}
+	    }
+	
+	    // Wait for the last checkpoint to be written
+	    if (checkpoints != null) {
+	    	try {
+	    		checkpoints.close();
+	    	} catch (Exception e) {
+	    		System.out.println(e);
+	    	}
+	    }
+	
+	    // Stop worker processes
+	    if (farm != null) {
+	    	farm.close();
+	    }
+	
+	    // Print how many evaluations the cache saved
+	    if (run.getFitnessCache() != null) {
+	    	System.out.println("Fitness cache hits: " + run.getFitnessCache().getHits() + ", misses: " + run.getFitnessCache().getMisses());
 	    }
 	
-	    // Generate csv file with results
-	    GenerateCsv.generateCsvFile("test.csv", csvFile);
+	    // Write the rows of the csv file still queued
+	    try {
+	    	metrics.close();
+	    } catch (Exception e) {
+	    	System.out.println(e);
+	    }
 	    
 	    // Print out results
 	    System.out.println("Pop1 fittest chromosome accross all generations has fitness: " + fittestChromo[0].getFitness());
@@ -50,6 +50,16 @@ public class Deck {
 		Collections.shuffle(cards);
 	}
 
+	/*
+	* Method that adds all dealt cards back to deck
+	* and shuffles it with the given random generator.
+	*/
+	public void shuffle(Random rand) {
+		cards.addAll(dealtCards);
+		dealtCards.clear();
+		Collections.shuffle(cards, rand);
+	}
+
 	/*
 	* Method that deals a card out of deck.
 	*/
@@ -0,0 +1,48 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> Pot.java
+*
+* <dt> Description:
+* <dd> This class represents the pot of a hand in a game of cards. Every
+* hand has its own pot, so several hands can be played at the same time.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package cardGame;
+
+public class Pot {
+
+	// Money in the pot
+	private int amount;
+
+	/*
+	 * Constructor for a pot holding the antes of the players.
+	 */
+	public Pot(int ante) {
+		amount = ante;
+	}
+
+	/*
+	 * Getter method that returns the money in the pot.
+	 */
+	public int getAmount() {
+		return amount;
+	}
+
+	/*
+	 * Method that adds a bet to the pot.
+	 */
+	public void add(int n) {
+		amount += n;
+	}
+
+	/*
+	 * Method that gives all the money in the pot to the winner.
+	 */
+	public void payTo(Player winner) {
+		winner.win(amount);
+		amount = 0;
+	}
+}
@@ -0,0 +1,311 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> Checkpoint.java
+*
+* <dt> Description:
+* <dd> Class that holds a snapshot of a run: the seed and variant of the
+* run, the generation reached, the genes, fitness and games behind the
+* fitness of every packed population, the fittest chromosomes found so
+* far and the state of the random streams. Snapshots are encoded in a
+* buffer kept on the heap and written to a temporary file, which is
+* then moved over the previous one, so a crash never leaves a broken
+* file. Files are never memory-mapped, as a mapping can not be released
+* in Java 7 and Windows refuses to move or replace a mapped file.
+* Restoring a snapshot gives a run the exact state it was saved in,
+* once checked to hold populations of the run's size and chromosome
+* length. The fitness cache of a run is not saved, so a run using one
+* with sampled fitness evaluates again the chromosomes it had cached,
+* and is only resumed exactly with the cache off.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import geneticAlgo.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class Checkpoint {
+
+	// First bytes of every checkpoint file ("KGACKPT" and version 2)
+	public final static long MAGIC = 0x4b4741434b505402L;
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	// Run the snapshot belongs to and generation reached
+	private long seed;
+	private String variant;
+	private int generation;
+
+	// Genes, fitness and games behind it of every population, laid out
+	// as in a PackedPopulation
+	private int size;
+	private int length;
+	private double[][] genes;
+	private double[][] fitness;
+	private long[][] samples;
+
+	// Genes and fitness of fittest chromosomes found so far
+	private double[][] bestGenes;
+	private double[] bestFitness;
+
+	// State and increment of every random stream
+	private long[] states;
+	private long[] gammas;
+
+	// Buffer the snapshot is encoded in, kept for the next write
+	private ByteBuffer buffer;
+
+	/*
+	 * Checkpoint constructor, allocating room for the given number of
+	 * populations, fittest chromosomes and random streams.
+	 */
+	public Checkpoint(int populations, int s, int l, int best, int streams) {
+		size = s;
+		length = l;
+		genes = new double[populations][size * length];
+		fitness = new double[populations][size];
+		samples = new long[populations][size];
+		bestGenes = new double[best][length];
+		bestFitness = new double[best];
+		states = new long[streams];
+		gammas = new long[streams];
+	}
+
+	/*
+	 * Copies the state of a run into the snapshot.
+	 */
+	public void capture(long sd, String v, int gen, PackedPopulation[] pops, Chromosome[] best, RandomStream[] streams) {
+		seed = sd;
+		variant = v;
+		generation = gen;
+		for (int p = 0; p < genes.length; p++) {
+			System.arraycopy(pops[p].getGeneData(), 0, genes[p], 0, genes[p].length);
+			System.arraycopy(pops[p].getFitnessData(), 0, fitness[p], 0, fitness[p].length);
+			System.arraycopy(pops[p].getSampleData(), 0, samples[p], 0, samples[p].length);
+		}
+		for (int b = 0; b < bestGenes.length; b++) {
+			for (int g = 0; g < length; g++) {
+				bestGenes[b][g] = best[b].getGene(g);
+			}
+			bestFitness[b] = best[b].getFitness();
+		}
+		for (int r = 0; r < states.length; r++) {
+			states[r] = streams[r].getState();
+			gammas[r] = streams[r].getGamma();
+		}
+	}
+
+	/*
+	 * Checks that the snapshot holds the given number of populations, of
+	 * the given size and chromosome length, as a run restoring it needs.
+	 */
+	public void check(int populations, int s, int l) throws IOException {
+		if (genes.length != populations) {
+			throw new IOException("Checkpoint holds " + genes.length + " populations instead of " + populations);
+		}
+		if (size != s) {
+			throw new IOException("Checkpoint holds populations of " + size + " chromosomes instead of " + s);
+		}
+		if (length != l) {
+			throw new IOException("Checkpoint holds chromosomes of length " + length + " instead of " + l);
+		}
+	}
+
+	/*
+	 * Copies the snapshot into the populations, fittest chromosomes and
+	 * random streams of a run, after checking they have its shape.
+	 */
+	public void restore(PackedPopulation[] pops, Chromosome[] best, RandomStream[] streams) throws IOException {
+		check(pops.length, pops[0].getSize(), pops[0].getChromoLength());
+		if (bestGenes.length != best.length) {
+			throw new IOException("Checkpoint holds " + bestGenes.length + " fittest chromosomes instead of " + best.length);
+		}
+		if (states.length != streams.length) {
+			throw new IOException("Checkpoint holds " + states.length + " random streams instead of " + streams.length);
+		}
+		for (int p = 0; p < genes.length; p++) {
+			pops[p].load(genes[p], fitness[p], samples[p]);
+		}
+		for (int b = 0; b < bestGenes.length; b++) {
+			for (int g = 0; g < length; g++) {
+				best[b].setGene(g, bestGenes[b][g]);
+			}
+			best[b].setFitness(bestFitness[b]);
+		}
+		for (int r = 0; r < states.length; r++) {
+			streams[r].setState(states[r], gammas[r]);
+		}
+	}
+
+	/*
+	 * Getter method for seed of the run.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/*
+	 * Getter method for name of the variant played.
+	 */
+	public String getVariant() {
+		return variant;
+	}
+
+	/*
+	 * Getter method for generation reached.
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/*
+	 * Writes the snapshot to the given file.
+	 */
+	public void write(Path file) throws IOException {
+		byte[] name = variant.getBytes(UTF8);
+		long bytes = 8 + 8 + 4 + name.length + 4 + 4 * 5
+				+ 16L * states.length
+				+ 8L * bestFitness.length * (length + 1)
+				+ 8L * genes.length * size * (length + 2);
+
+		if (buffer == null || buffer.capacity() < bytes) {
+			buffer = ByteBuffer.allocate((int) bytes);
+		}
+		ByteBuffer buf = buffer;
+		buf.clear();
+		buf.putLong(MAGIC);
+		buf.putLong(seed);
+		buf.putInt(name.length);
+		buf.put(name);
+		buf.putInt(generation);
+		buf.putInt(genes.length);
+		buf.putInt(size);
+		buf.putInt(length);
+		buf.putInt(bestFitness.length);
+		buf.putInt(states.length);
+		for (int r = 0; r < states.length; r++) {
+			buf.putLong(states[r]);
+			buf.putLong(gammas[r]);
+		}
+		putDoubles(buf, bestFitness);
+		for (int b = 0; b < bestGenes.length; b++) {
+			putDoubles(buf, bestGenes[b]);
+		}
+		for (int p = 0; p < genes.length; p++) {
+			putDoubles(buf, fitness[p]);
+			putLongs(buf, samples[p]);
+			putDoubles(buf, genes[p]);
+		}
+		buf.flip();
+
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while (buf.hasRemaining()) {
+				channel.write(buf);
+			}
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/*
+	 * Reads a snapshot from the given file.
+	 */
+	public static Checkpoint read(Path file) throws IOException {
+		ByteBuffer buf;
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			buf = ByteBuffer.allocate((int) channel.size());
+			while (buf.hasRemaining()) {
+				if (channel.read(buf) == -1) {
+					throw new IOException("Checkpoint file cut short: " + file);
+				}
+			}
+		} finally {
+			channel.close();
+		}
+		buf.flip();
+
+		long magic = buf.getLong();
+		if (magic != MAGIC) {
+			if (magic >>> 8 == MAGIC >>> 8) {
+				throw new IOException("Checkpoint file of version " + (magic & 0xff) + " instead of " + (MAGIC & 0xff) + ": " + file);
+			}
+			throw new IOException("Not a checkpoint file: " + file);
+		}
+		long seed = buf.getLong();
+		byte[] name = new byte[buf.getInt()];
+		buf.get(name);
+		int generation = buf.getInt();
+		int populations = buf.getInt();
+		int size = buf.getInt();
+		int length = buf.getInt();
+		int best = buf.getInt();
+		int streams = buf.getInt();
+
+		Checkpoint ckpt = new Checkpoint(populations, size, length, best, streams);
+		ckpt.seed = seed;
+		ckpt.variant = new String(name, UTF8);
+		ckpt.generation = generation;
+		for (int r = 0; r < streams; r++) {
+			ckpt.states[r] = buf.getLong();
+			ckpt.gammas[r] = buf.getLong();
+		}
+		getDoubles(buf, ckpt.bestFitness);
+		for (int b = 0; b < best; b++) {
+			getDoubles(buf, ckpt.bestGenes[b]);
+		}
+		for (int p = 0; p < populations; p++) {
+			getDoubles(buf, ckpt.fitness[p]);
+			getLongs(buf, ckpt.samples[p]);
+			getDoubles(buf, ckpt.genes[p]);
+		}
+		return ckpt;
+	}
+
+	/*
+	 * Puts doubles in the buffer in a single block.
+	 */
+	private static void putDoubles(ByteBuffer buf, double[] values) {
+		buf.asDoubleBuffer().put(values);
+		buf.position(buf.position() + values.length * 8);
+	}
+
+	/*
+	 * Gets a block of doubles from the buffer.
+	 */
+	private static void getDoubles(ByteBuffer buf, double[] values) {
+		buf.asDoubleBuffer().get(values);
+		buf.position(buf.position() + values.length * 8);
+	}
+
+	/*
+	 * Puts longs in the buffer in a single block.
+	 */
+	private static void putLongs(ByteBuffer buf, long[] values) {
+		buf.asLongBuffer().put(values);
+		buf.position(buf.position() + values.length * 8);
+	}
+
+	/*
+	 * Gets a block of longs from the buffer.
+	 */
+	private static void getLongs(ByteBuffer buf, long[] values) {
+		buf.asLongBuffer().get(values);
+		buf.position(buf.position() + values.length * 8);
+	}
+}
@@ -0,0 +1,89 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> CheckpointWriter.java
+*
+* <dt> Description:
+* <dd> Class that saves checkpoints of a run without stopping it. Two
+* snapshots are kept: the state of the run is copied into a free one,
+* which is then written to the file on a background thread while the
+* run goes on. A save only waits when both snapshots are still being
+* written.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import geneticAlgo.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class CheckpointWriter {
+
+	// File checkpoints are written to
+	private Path file;
+
+	// Snapshots not being written, and thread writing the rest in order
+	private ArrayBlockingQueue<Checkpoint> free;
+	private ExecutorService writer;
+
+	// Error of the last write that failed, if any
+	private volatile IOException error;
+
+	/*
+	 * CheckpointWriter constructor, with room for the given number of
+	 * populations, fittest chromosomes and random streams.
+	 */
+	public CheckpointWriter(Path f, int populations, int size, int length, int best, int streams) {
+		file = f;
+		free = new ArrayBlockingQueue<Checkpoint>(2);
+		free.add(new Checkpoint(populations, size, length, best, streams));
+		free.add(new Checkpoint(populations, size, length, best, streams));
+		writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "checkpoint-writer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/*
+	 * Copies the state of the run into a free snapshot and writes it in
+	 * the background.
+	 */
+	public void save(long seed, String variant, int generation, PackedPopulation[] pops, Chromosome[] best, RandomStream[] streams) throws InterruptedException {
+		final Checkpoint ckpt = free.take();
+		ckpt.capture(seed, variant, generation, pops, best, streams);
+		writer.execute(new Runnable() {
+			public void run() {
+				try {
+					ckpt.write(file);
+				} catch (IOException e) {
+					error = e;
+				} finally {
+					free.add(ckpt);
+				}
+			}
+		});
+	}
+
+	/*
+	 * Waits for the snapshots being written, throwing the error of the
+	 * last write that failed.
+	 */
+	public void close() throws IOException, InterruptedException {
+		writer.shutdown();
+		writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		if (error != null) {
+			throw error;
+		}
+	}
+}
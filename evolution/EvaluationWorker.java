@@ -0,0 +1,66 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> EvaluationWorker.java
+*
+* <dt> Description:
+* <dd> Process that plays the games of a WorkerFarm. It connects to the
+* farm at the host and port given as arguments, finds the variant the
+* farm plays and then plays every batch it is sent on all the cores of
+* its machine, answering batches in the order they were sent.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import gameTree.*;
+import geneticAlgo.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+public class EvaluationWorker {
+
+	public static void main(String[] args) throws IOException {
+		Socket socket = new Socket(args[0], Integer.parseInt(args[1]));
+		socket.setTcpNoDelay(true);
+		DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+		// Variant played by the farm
+		GameVariant variant = GameVariants.forName(in.readUTF());
+		ParallelEvaluator evaluator = new ParallelEvaluator(variant, Runtime.getRuntime().availableProcessors());
+
+		// Columns of the job being played
+		Chromosome[] cols = null;
+
+		try {
+			while (true) {
+				int type = in.readInt();
+				if (type == FarmProtocol.COLUMNS) {
+					in.readLong();
+					cols = FarmProtocol.readChromos(in);
+				} else if (type == FarmProtocol.BATCH) {
+					long id = in.readLong();
+					long seed = in.readLong();
+					Chromosome[] rows = FarmProtocol.readChromos(in);
+					double[][] wins = evaluator.playMatrix(rows, cols, seed);
+					out.writeLong(id);
+					FarmProtocol.writeDoubles(out, wins[0]);
+					FarmProtocol.writeDoubles(out, wins[1]);
+					out.flush();
+				} else {
+					break;
+				}
+			}
+		} finally {
+			evaluator.close();
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> FarmProtocol.java
+*
+* <dt> Description:
+* <dd> Messages exchanged by a WorkerFarm and its EvaluationWorkers. After
+* the farm sends the name of the variant played, every message starts
+* with its type:
+* COLUMNS (job id, chromosomes) sets the columns of the matrix of a job,
+* BATCH (batch id, seed, chromosomes) asks for the games of some rows
+* against the last columns sent, answered with the batch id and the
+* wins of those rows and of every column, and SHUTDOWN stops the
+* worker. Chromosomes are sent as their number, their length and all
+* their genes in a single block of doubles.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import geneticAlgo.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+class FarmProtocol {
+
+	// Types of message
+	final static int SHUTDOWN = 0;
+	final static int COLUMNS = 1;
+	final static int BATCH = 2;
+
+	/*
+	 * Returns genes of chromosomes lo to hi - 1 in a block of bytes.
+	 */
+	static byte[] genes(Chromosome[] chromos, int lo, int hi) {
+		int length = chromos[lo].getLength();
+		ByteBuffer buf = ByteBuffer.allocate(8 + (hi - lo) * length * 8);
+		buf.putInt(hi - lo);
+		buf.putInt(length);
+		for (int i = lo; i < hi; i++) {
+			for (int g = 0; g < length; g++) {
+				buf.putDouble(chromos[i].getGene(g));
+			}
+		}
+		return buf.array();
+	}
+
+	/*
+	 * Reads chromosomes written as a block of genes.
+	 */
+	static Chromosome[] readChromos(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		int length = in.readInt();
+		byte[] block = new byte[n * length * 8];
+		in.readFully(block);
+		ByteBuffer buf = ByteBuffer.wrap(block);
+		Chromosome[] chromos = new Chromosome[n];
+		for (int i = 0; i < n; i++) {
+			chromos[i] = new Chromosome(length);
+			for (int g = 0; g < length; g++) {
+				chromos[i].setGene(g, buf.getDouble());
+			}
+		}
+		return chromos;
+	}
+
+	/*
+	 * Writes an array of doubles preceded by its length.
+	 */
+	static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(4 + values.length * 8);
+		buf.putInt(values.length);
+		buf.asDoubleBuffer().put(values);
+		out.write(buf.array());
+	}
+
+	/*
+	 * Reads an array of doubles preceded by its length.
+	 */
+	static double[] readDoubles(DataInputStream in) throws IOException {
+		double[] values = new double[in.readInt()];
+		byte[] block = new byte[values.length * 8];
+		in.readFully(block);
+		ByteBuffer.wrap(block).asDoubleBuffer().get(values);
+		return values;
+	}
+}
@@ -0,0 +1,216 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> FitnessCache.java
+*
+* <dt> Description:
+* <dd> Class that remembers the fitness of chromosomes evaluated against a
+* fixed opponent, so chromosomes copied unchanged into the next
+* generation are not evaluated again. Entries are found by the hash of
+* the genes and the key of the opponent, and the genes are compared
+* before an entry is used. The cache holds a bounded number of entries,
+* kept in flat arrays, and evicts them with the CLOCK algorithm: every
+* entry used since the hand last passed it is given a second chance.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import geneticAlgo.*;
+
+import java.util.Arrays;
+
+public class FitnessCache {
+
+	// Number of entries and length of the chromosomes cached
+	private int capacity;
+	private int length;
+
+	// First entry of every bucket (-1 when empty) and next entry in the
+	// same bucket
+	private int[] heads;
+	private int[] next;
+
+	// Hash of the genes, opponent, genes, fitness and games played of
+	// every entry
+	private long[] hashes;
+	private long[] opponents;
+	private double[] genes;
+	private double[] fitness;
+	private long[] samples;
+
+	// Entries holding a chromosome, entries used since the hand of the
+	// clock passed them, and position of the hand
+	private boolean[] used;
+	private boolean[] referenced;
+	private int hand;
+
+	// Lookups that found and did not find their chromosome
+	private long hits;
+	private long misses;
+
+	/*
+	 * FitnessCache constructor, holding at most the given number of
+	 * chromosomes of the given length, which must be at least one.
+	 */
+	public FitnessCache(int c, int l) {
+		if (c < 1) {
+			throw new IllegalArgumentException("Can not cache " + c + " chromosomes");
+		}
+		capacity = c;
+		length = l;
+		heads = new int[Math.max(Integer.highestOneBit(capacity) * 2, 16)];
+		Arrays.fill(heads, -1);
+		next = new int[capacity];
+		hashes = new long[capacity];
+		opponents = new long[capacity];
+		genes = new double[capacity * length];
+		fitness = new double[capacity];
+		samples = new long[capacity];
+		used = new boolean[capacity];
+		referenced = new boolean[capacity];
+	}
+
+	/*
+	 * Returns key of an opponent: the genes of the strategy, the player
+	 * it is played as and whether fitness is exact or sampled.
+	 */
+	public static long opponentKey(Chromosome strategy, int player, boolean exact) {
+		return strategy.geneHash() * 31 + player * 2 + (exact ? 1 : 0);
+	}
+
+	/*
+	 * Sets the fitness of a chromosome to the one cached against the
+	 * opponent, returning the number of games it was found with (0 if
+	 * the chromosome is not in the cache).
+	 */
+	public synchronized long lookup(Chromosome ch, long opponent) {
+		int e = find(ch, ch.geneHash(), opponent);
+		if (e == -1) {
+			misses++;
+			return 0;
+		}
+		hits++;
+		referenced[e] = true;
+		ch.setFitness(fitness[e], samples[e]);
+		return samples[e];
+	}
+
+	/*
+	 * Caches the fitness of a chromosome against the opponent, found with
+	 * the given number of games, replacing any fitness cached before.
+	 */
+	public synchronized void put(Chromosome ch, long opponent, double f, long games) {
+		long h = ch.geneHash();
+		int e = find(ch, h, opponent);
+		if (e == -1) {
+			e = evict();
+			int b = bucket(h);
+			hashes[e] = h;
+			opponents[e] = opponent;
+			for (int g = 0; g < length; g++) {
+				genes[e * length + g] = ch.getGene(g);
+			}
+			next[e] = heads[b];
+			heads[b] = e;
+			used[e] = true;
+		}
+		fitness[e] = f;
+		samples[e] = games;
+		referenced[e] = true;
+	}
+
+	/*
+	 * Removes every entry.
+	 */
+	public synchronized void clear() {
+		Arrays.fill(heads, -1);
+		Arrays.fill(used, false);
+		Arrays.fill(referenced, false);
+		hand = 0;
+	}
+
+	/*
+	 * Getter method for lookups that found their chromosome.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/*
+	 * Getter method for lookups that did not find their chromosome.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/*
+	 * Returns entry of a chromosome against the opponent, or -1.
+	 */
+	private int find(Chromosome ch, long h, long opponent) {
+		for (int e = heads[bucket(h)]; e != -1; e = next[e]) {
+			if (hashes[e] == h && opponents[e] == opponent && sameGenes(e, ch)) {
+				return e;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Returns true if the entry holds the genes of the chromosome, compared
+	 * bit by bit as Chromosome.sameGenes does.
+	 */
+	private boolean sameGenes(int e, Chromosome ch) {
+		if (ch.getLength() != length) {
+			return false;
+		}
+		for (int g = 0; g < length; g++) {
+			if (Double.doubleToLongBits(genes[e * length + g]) != Double.doubleToLongBits(ch.getGene(g))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Returns a free entry, moving the hand past the entries used since it
+	 * last passed them and removing the first one that was not.
+	 */
+	private int evict() {
+		while (used[hand] && referenced[hand]) {
+			referenced[hand] = false;
+			hand = (hand + 1) % capacity;
+		}
+		int e = hand;
+		hand = (hand + 1) % capacity;
+		if (used[e]) {
+			unlink(e);
+		}
+		return e;
+	}
+
+	/*
+	 * Removes an entry from its bucket.
+	 */
+	private void unlink(int e) {
+		int b = bucket(hashes[e]);
+		if (heads[b] == e) {
+			heads[b] = next[e];
+		} else {
+			int i = heads[b];
+			while (next[i] != e) {
+				i = next[i];
+			}
+			next[i] = next[e];
+		}
+		used[e] = false;
+	}
+
+	/*
+	 * Returns bucket of a hash.
+	 */
+	private int bucket(long h) {
+		return (int) (h >>> 32) & (heads.length - 1);
+	}
+}
@@ -0,0 +1,27 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> FitnessFunction.java
+*
+* <dt> Description:
+* <dd> Interface for the evaluation of a population on its own, such as
+* every island of an IslandModel. Islands are evaluated on their own
+* threads at the same time, so implementations must be thread-safe and
+* take any randomness from the generator they are given.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import geneticAlgo.*;
+
+import java.util.Random;
+
+public interface FitnessFunction {
+
+	/*
+	 * Sets the fitness of every chromosome of the population.
+	 */
+	void evaluate(Population pop, Random rand);
+}
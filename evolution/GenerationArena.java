@@ -0,0 +1,129 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> GenerationArena.java
+*
+* <dt> Description:
+* <dd> Class that breeds the generations of a player in two packed
+* populations allocated once: the offspring of the current generation
+* are written into the rows of the next one, and then both are swapped.
+* Parents are copied into two chromosomes kept by the arena, crossed
+* over and mutated in place, so breeding a generation does not allocate
+* any chromosome. It draws the same random numbers as breedGeneration,
+* so both give the same generations.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import geneticAlgo.*;
+
+public class GenerationArena {
+
+	// Settings of the run the generations belong to
+	private RunContext run;
+
+	// Generation that was last bred (or created) and buffer the next one
+	// is bred into
+	private PackedPopulation current;
+	private PackedPopulation next;
+
+	// Random stream shared by both populations
+	private RandomStream rand;
+
+	// Chromosomes the offspring are made in before being added
+	private Chromosome[] chromo;
+
+	/*
+	 * Arena constructor for the populations of the given player, which
+	 * share the random stream the run gives that player.
+	 */
+	public GenerationArena(RunContext r, int player) {
+		this(r, r.getSize(), r.newRandom(player));
+	}
+
+	/*
+	 * Arena constructor for populations of the given size, such as the
+	 * islands a player is split into, using the given random generator.
+	 */
+	public GenerationArena(RunContext r, int size, RandomStream rs) {
+		run = r;
+		rand = rs;
+		int length = run.getChromoLength();
+		current = new PackedPopulation(size, length, run.getCrossRate(), run.getMutateRate());
+		next = new PackedPopulation(size, length, run.getCrossRate(), run.getMutateRate());
+		current.setRandom(rand);
+		next.setRandom(rand);
+		chromo = new Chromosome[2];
+		chromo[0] = new Chromosome(length);
+		chromo[1] = new Chromosome(length);
+	}
+
+	/*
+	 * Getter method for random stream used to breed the populations.
+	 */
+	public RandomStream getRandom() {
+		return rand;
+	}
+
+	/*
+	 * Getter method for current generation.
+	 */
+	public PackedPopulation getCurrent() {
+		return current;
+	}
+
+	/*
+	 * Breeds the next generation from the current one, which becomes the
+	 * buffer the following generation will be bred into.
+	 */
+	public PackedPopulation breed() {
+		int size = current.getSize();
+		int eliteCount = Math.min(run.getEliteCount(), size);
+
+		// Generation counter
+		int count = 0;
+
+		// Sort population when there is elitism bigger than zero
+		if (eliteCount > 0) {
+			current.sort();
+		}
+
+		while ( count < size ) {
+			// Take best chromosomes and reinsert them unaltered.
+			if (count < eliteCount) {
+				chromo[0].copyFrom(current.getChromo(count));
+				chromo[1].copyFrom(current.getChromo(count+1));
+			} else {
+				// Select two chromosomes with tournament selection
+				chromo[0].copyFrom(current.selectTournament(2));
+				chromo[1].copyFrom(current.selectTournament(2));
+
+				// Crossover chromosomes with Uniform crossover
+				next.uniformCrossoverInPlace(chromo, rand);
+
+				// Mutate chromosomes
+				next.mutateInPlace(chromo[0], rand);
+				next.mutateInPlace(chromo[1], rand);
+			}
+
+			// Copy resulting chromosomes to the next generation, making sure
+			// that they are not clones of other members of population
+			if (!next.contains(chromo[0], count)) {
+				next.setChromo(count, chromo[0]);
+				count += 1;
+			}
+			if (count < size && !next.contains(chromo[1], count)) {
+				next.setChromo(count, chromo[1]);
+				count += 1;
+			}
+		}
+
+		// Swap the buffers
+		PackedPopulation bred = next;
+		next = current;
+		current = bred;
+		return current;
+	}
+}
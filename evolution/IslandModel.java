@@ -0,0 +1,236 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> IslandModel.java
+*
+* <dt> Description:
+* <dd> Class that evolves the population of a player split into islands,
+* each one bred and evaluated on its own thread with its own random
+* streams. Every few generations the islands stop at a barrier and send
+* copies of their fittest chromosomes to another island, chosen on a
+* ring or at random, where they replace the least fit ones. Migrants are
+* left in slots of a mailbox that only their sender writes and only
+* their receiver reads, and the barrier orders both, so no locks are
+* needed and runs with the same seed give the same islands.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import geneticAlgo.*;
+
+import java.util.Random;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class IslandModel {
+
+	// Islands every chromosome is sent to
+	public enum Topology { RING, RANDOM }
+
+	// Settings of the run and evaluation of every island
+	private RunContext run;
+	private FitnessFunction fitness;
+
+	// Number of islands, generations between migrations, chromosomes sent
+	// by every island and islands they are sent to
+	private int islands;
+	private int interval;
+	private int migrants;
+	private Topology topology;
+
+	// Arena breeding every island, and stream used by every island for
+	// its evaluation and for choosing where its migrants go
+	private GenerationArena[] arena;
+	private RandomStream[] rand;
+
+	// Migrants sent by island s to island r in an epoch of parity p are in
+	// slot (p * islands + r) * islands + s
+	private AtomicReferenceArray<Chromosome[]> mailbox;
+	private Phaser barrier;
+
+	// Generations bred, chromosomes evaluated and nanoseconds spent doing
+	// so by every island (written only by its thread)
+	private long[] generations;
+	private long[] evaluations;
+	private long[] nanos;
+
+	// Error that stopped an island, if any
+	private volatile Throwable error;
+
+	/*
+	 * IslandModel constructor, splitting the population of the given
+	 * player into islands whose sizes differ by at most one chromosome.
+	 */
+	public IslandModel(RunContext r, FitnessFunction f, int player, int k, int m, int mig, Topology t) {
+		if (k < 1 || r.getSize() / k < 2) {
+			throw new IllegalArgumentException("Can not split " + r.getSize() + " chromosomes into " + k + " islands");
+		}
+		run = r;
+		fitness = f;
+		islands = k;
+		interval = m;
+		migrants = Math.min(mig, run.getSize() / k);
+		topology = t;
+
+		// Every island takes two streams split from the player's stream, and
+		// the first islands one more chromosome each until the whole
+		// population is used
+		RandomStream base = run.newRandom(player);
+		arena = new GenerationArena[islands];
+		rand = new RandomStream[islands];
+		for (int i = 0; i < islands; i++) {
+			int size = run.getSize() / islands + (i < run.getSize() % islands ? 1 : 0);
+			arena[i] = new GenerationArena(run, size, base.split());
+			rand[i] = base.split();
+		}
+
+		mailbox = new AtomicReferenceArray<Chromosome[]>(2 * islands * islands);
+		generations = new long[islands];
+		evaluations = new long[islands];
+		nanos = new long[islands];
+	}
+
+	/*
+	 * Creates random islands and evolves them for the given number of
+	 * generations, returning once every island is done.
+	 */
+	public void run(final int gens) throws InterruptedException {
+		barrier = new Phaser(islands);
+		Thread[] threads = new Thread[islands];
+		for (int i = 0; i < islands; i++) {
+			final int island = i;
+			threads[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						evolve(island, gens);
+					} catch (Throwable e) {
+						error = e;
+						barrier.arriveAndDeregister();
+					}
+				}
+			}, "island-" + i);
+			threads[i].start();
+		}
+		for (int i = 0; i < islands; i++) {
+			threads[i].join();
+		}
+		if (error != null) {
+			throw new IllegalStateException("Island failed", error);
+		}
+	}
+
+	/*
+	 * Evolves an island, taking part in every migration.
+	 */
+	private void evolve(int island, int gens) {
+		long start = System.nanoTime();
+		Population pop = arena[island].getCurrent();
+		pop.randomizeUniformly();
+		fitness.evaluate(pop, rand[island]);
+		evaluations[island] += pop.getSize();
+
+		for (int g = 1; g <= gens; g++) {
+			pop = arena[island].breed();
+			fitness.evaluate(pop, rand[island]);
+			evaluations[island] += pop.getSize();
+			generations[island]++;
+
+			if (islands > 1 && g % interval == 0) {
+				nanos[island] += System.nanoTime() - start;
+				migrate(island, g / interval, arena[island].getCurrent());
+				start = System.nanoTime();
+			}
+		}
+		nanos[island] += System.nanoTime() - start;
+	}
+
+	/*
+	 * Sends copies of the fittest chromosomes of the island, waits for
+	 * every island to do so and replaces the least fit chromosomes of the
+	 * island with the ones it was sent.
+	 */
+	private void migrate(int island, int epoch, PackedPopulation pop) {
+		int parity = epoch & 1;
+
+		// Fittest chromosomes are first once the population is sorted
+		pop.sort();
+		Chromosome[] sent = new Chromosome[migrants];
+		for (int i = 0; i < migrants; i++) {
+			sent[i] = new Chromosome(pop.getChromo(i));
+		}
+		mailbox.set((parity * islands + target(island)) * islands + island, sent);
+
+		barrier.arriveAndAwaitAdvance();
+
+		// Migrants replace the least fit chromosomes, unless the island
+		// already holds a copy of them
+		int last = pop.getSize() - 1;
+		for (int s = 0; s < islands; s++) {
+			Chromosome[] received = mailbox.getAndSet((parity * islands + island) * islands + s, null);
+			if (received != null) {
+				for (int i = 0; i < received.length && last >= migrants; i++) {
+					if (!pop.contains(received[i], pop.getSize())) {
+						pop.setChromo(last, received[i]);
+						last--;
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * Returns island the migrants of the given island are sent to.
+	 */
+	private int target(int island) {
+		if (topology == Topology.RING) {
+			return (island + 1) % islands;
+		}
+		return (island + 1 + rand[island].nextInt(islands - 1)) % islands;
+	}
+
+	/*
+	 * Getter method for number of islands.
+	 */
+	public int getIslands() {
+		return islands;
+	}
+
+	/*
+	 * Returns current generation of an island.
+	 */
+	public Population getIsland(int island) {
+		return arena[island].getCurrent();
+	}
+
+	/*
+	 * Returns fittest chromosome of all islands.
+	 */
+	public Chromosome getFittest() {
+		Chromosome fittest = getIsland(0).getFittest();
+		for (int i = 1; i < islands; i++) {
+			Chromosome ch = getIsland(i).getFittest();
+			if (fittest.getFitness() < ch.getFitness()) {
+				fittest = ch;
+			}
+		}
+		return fittest;
+	}
+
+	/*
+	 * Returns generations bred per second by an island, not counting the
+	 * time spent migrating.
+	 */
+	public double getGenerationsPerSecond(int island) {
+		return generations[island] / (nanos[island] / 1e9);
+	}
+
+	/*
+	 * Returns chromosomes evaluated per second by an island, not counting
+	 * the time spent migrating.
+	 */
+	public double getEvaluationsPerSecond(int island) {
+		return evaluations[island] / (nanos[island] / 1e9);
+	}
+}
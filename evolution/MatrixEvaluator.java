@@ -0,0 +1,114 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> MatrixEvaluator.java
+*
+* <dt> Description:
+* <dd> Class that evaluates the fitness of populations by playing sampled
+* games for every cell of a matrix, with the chromosomes of player 1 in
+* rows and the chromosomes of player 2 in columns. Subclasses decide
+* where the games of the matrix are played.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import gameTree.*;
+import geneticAlgo.*;
+
+import java.util.Arrays;
+
+public abstract class MatrixEvaluator {
+
+	/*
+	 * Evaluate fitness of two populations through co-evolution, playing
+	 * every chromosome of p1 against every chromosome of p2.
+	 */
+	public void evalFitness(Population p1, Population p2, int size, long seed) {
+		Chromosome[] rows = new Chromosome[size];
+		Chromosome[] cols = new Chromosome[size];
+		for (int i = 0; i < size; i++) {
+			rows[i] = p1.getChromo(i);
+			cols[i] = p2.getChromo(i);
+		}
+		double[][] wins = playMatrix(rows, cols, seed);
+		PopulationStats stats1 = new PopulationStats(size, p1.getChromoLength());
+		PopulationStats stats2 = new PopulationStats(size, p2.getChromoLength());
+		for (int i = 0; i < size; i++) {
+			p1.getChromo(i).setFitness(wins[0][i]/size, size);
+			p2.getChromo(i).setFitness(wins[1][i]/size, size);
+			stats1.add(i, p1.getChromo(i));
+			stats2.add(i, p2.getChromo(i));
+		}
+		p1.setStats(stats1);
+		p2.setStats(stats2);
+	}
+
+	/*
+	 * Evaluate fitness of population against strategy as a first player,
+	 * playing size games for every chromosome.
+	 */
+	public void evalFitness(Population p1, Chromosome strategy, int size, long seed) {
+		Chromosome[] rows = new Chromosome[size];
+		Chromosome[] cols = new Chromosome[size];
+		for (int i = 0; i < size; i++) {
+			rows[i] = p1.getChromo(i);
+		}
+		Arrays.fill(cols, strategy);
+		double[][] wins = playMatrix(rows, cols, seed);
+		PopulationStats stats = new PopulationStats(size, p1.getChromoLength());
+		for (int i = 0; i < size; i++) {
+			p1.getChromo(i).setFitness(wins[0][i]/size, size);
+			stats.add(i, p1.getChromo(i));
+		}
+		p1.setStats(stats);
+	}
+
+	/*
+	 * Evaluate fitness of population against strategy as a second player,
+	 * playing size games for every chromosome.
+	 */
+	public void evalFitness(Chromosome strategy, Population p2, int size, long seed) {
+		Chromosome[] rows = new Chromosome[size];
+		Chromosome[] cols = new Chromosome[size];
+		Arrays.fill(rows, strategy);
+		for (int i = 0; i < size; i++) {
+			cols[i] = p2.getChromo(i);
+		}
+		double[][] wins = playMatrix(rows, cols, seed);
+		PopulationStats stats = new PopulationStats(size, p2.getChromoLength());
+		for (int i = 0; i < size; i++) {
+			p2.getChromo(i).setFitness(wins[1][i]/size, size);
+			stats.add(i, p2.getChromo(i));
+		}
+		p2.setStats(stats);
+	}
+
+	/*
+	 * Evaluate fitness of the given chromosomes against strategy as the
+	 * given player, playing the given number of games for every one.
+	 */
+	public void evalFitness(Chromosome[] chromos, Chromosome strategy, int player, int games, long seed) {
+		Chromosome[] others = new Chromosome[games];
+		Arrays.fill(others, strategy);
+		if (player == GameTree.PLAYER_1) {
+			double[][] wins = playMatrix(chromos, others, seed);
+			for (int i = 0; i < chromos.length; i++) {
+				chromos[i].setFitness(wins[0][i]/games, games);
+			}
+		} else {
+			double[][] wins = playMatrix(others, chromos, seed);
+			for (int i = 0; i < chromos.length; i++) {
+				chromos[i].setFitness(wins[1][i]/games, games);
+			}
+		}
+	}
+
+	/*
+	 * Plays a game for every cell of the matrix and returns total wins of
+	 * every row (as player 1) and every column (as player 2). Results must
+	 * only depend on the chromosomes and the seed.
+	 */
+	public abstract double[][] playMatrix(Chromosome[] rows, Chromosome[] cols, long seed);
+}
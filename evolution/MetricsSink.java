@@ -0,0 +1,182 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> MetricsSink.java
+*
+* <dt> Description:
+* <dd> Class that appends a CSV row of metrics for every generation of a
+* run to a file while the run goes on. Rows are queued and written by a
+* background thread through a buffered FileChannel. The buffer is
+* handed to the file whenever the queue is empty, so the file is up to
+* date after every generation and survives a crash of the run. The
+* queue is bounded, so a run producing rows faster than they can be
+* written waits for the writer instead of filling the memory. A resumed
+* run first cuts the file after the row of the generation it resumes
+* from, dropping the rows written after the checkpoint, which it is
+* about to write again.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+public class MetricsSink {
+
+	// Rows queued before write waits, and size of the write buffer
+	public final static int QUEUE_SIZE = 1024;
+	public final static int BUFFER_SIZE = 64 * 1024;
+
+	private final static Charset ASCII = Charset.forName("US-ASCII");
+
+	// Row queued by close to stop the writer
+	private final static double[] END = new double[0];
+
+	// File rows are written to, buffer they are encoded in and rows not
+	// written yet
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private ArrayBlockingQueue<double[]> queue;
+	private Thread writer;
+
+	// Error that stopped the writer, if any
+	private volatile IOException error;
+
+	/*
+	 * MetricsSink constructor, keeping the rows of the file up to the
+	 * given generation (the one a run is resumed from) and appending
+	 * after them, or replacing the file when the generation is 0.
+	 */
+	public MetricsSink(Path file, int generation) throws IOException {
+		long kept = 0;
+		if (generation > 0 && Files.exists(file)) {
+			kept = rowsEnd(file, generation);
+		}
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		channel.truncate(kept);
+		channel.position(kept);
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		queue = new ArrayBlockingQueue<double[]>(QUEUE_SIZE);
+		writer = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "metrics-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/*
+	 * Returns length of the rows of the file up to the given generation,
+	 * the rows being in order of generation. Only whole rows are kept: the
+	 * file is cut before a row left without its newline by a crash, or
+	 * one that does not start with a generation number.
+	 */
+	private static long rowsEnd(Path file, int generation) throws IOException {
+		String text = new String(Files.readAllBytes(file), ASCII);
+		int end = 0;
+		int newline;
+		while ((newline = text.indexOf('\n', end)) != -1) {
+			int comma = text.indexOf(',', end);
+			if (comma == -1 || comma > newline) {
+				break;
+			}
+			try {
+				if (Integer.parseInt(text.substring(end, comma).trim()) > generation) {
+					break;
+				}
+			} catch (NumberFormatException e) {
+				break;
+			}
+			end = newline + 1;
+		}
+		return end;
+	}
+
+	/*
+	 * Queues the row of a generation: its number, average and best
+	 * fitness, milliseconds spent evaluating it, games played per second
+	 * and diversity of its genes. Waits while the queue is full.
+	 */
+	public void write(int generation, double avgFitness, double bestFitness, double evalMillis, double gamesPerSecond, double diversity) throws IOException, InterruptedException {
+		if (error != null) {
+			throw error;
+		}
+		queue.put(new double[] { generation, avgFitness, bestFitness, evalMillis, gamesPerSecond, diversity });
+	}
+
+	/*
+	 * Writes the rows still queued and closes the file.
+	 */
+	public void close() throws IOException, InterruptedException {
+		queue.put(END);
+		writer.join();
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/*
+	 * Writes queued rows until close is called.
+	 */
+	private void drain() {
+		try {
+			try {
+				while (true) {
+					double[] row = queue.take();
+					if (row == END) {
+						break;
+					}
+					byte[] line = format(row).getBytes(ASCII);
+					if (buffer.remaining() < line.length) {
+						flush();
+					}
+					buffer.put(line);
+					if (queue.isEmpty()) {
+						flush();
+					}
+				}
+				flush();
+				channel.force(false);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			error = e;
+			queue.clear();
+		} catch (InterruptedException e) {
+			error = new IOException("Metrics writer interrupted", e);
+		}
+	}
+
+	/*
+	 * Hands the buffer to the file.
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/*
+	 * Returns CSV line of a row, generation first.
+	 */
+	private static String format(double[] row) {
+		StringBuilder line = new StringBuilder();
+		line.append((int) row[0]);
+		for (int i = 1; i < row.length; i++) {
+			line.append(", ").append(row[i]);
+		}
+		return line.append('\n').toString();
+	}
+}
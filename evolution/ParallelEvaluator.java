@@ -0,0 +1,221 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> ParallelEvaluator.java
+*
+* <dt> Description:
+* <dd> Class that evaluates the fitness of populations by playing sampled
+* games on a ForkJoinPool. The matrix of games (chromosomes of player 1
+* in rows, chromosomes of player 2 in columns) is split into square
+* tiles small enough to keep their chromosomes in cache. Every tile is
+* played with its own random stream, derived from the evaluation seed
+* and the position of the tile, and adds its wins to its own partial
+* sums, which are merged once all tiles are done. Results therefore do
+* not depend on the number of threads or on the order tiles are run in.
+* Every chromosome is compiled once per evaluation into a table of
+* thresholds, so each decision of a game is an array load and a
+* comparison of random bits.
+* In common random numbers mode, a table of deals and decision draws is
+* built from the seed instead, and the game in row i and column j
+* replays hand (i + j) of it. When one side of the matrix repeats a
+* fixed strategy, the table is as long as that side, so every chromosome
+* of the other side plays every hand of the table once and faces
+* exactly the same luck. Otherwise the table is as long as the shorter
+* side, and every chromosome of the longer side plays every hand once.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import gameTree.*;
+import geneticAlgo.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelEvaluator extends MatrixEvaluator {
+
+	// Side of the square tiles of the game matrix
+	public final static int TILE = 64;
+
+	// Variant played, bound once for every game of the evaluator, pool
+	// running the tiles and whether the evaluator created it
+	private GameVariant variant;
+	private ForkJoinPool pool;
+	private boolean ownsPool;
+
+	// Whether games replay a shared table of draws
+	private boolean common;
+
+	/*
+	 * Evaluator constructor, using the given number of threads (a single
+	 * thread gives the sequential evaluation). The pool is shut down by
+	 * close.
+	 */
+	public ParallelEvaluator(GameVariant v, int threads) {
+		variant = v;
+		pool = new ForkJoinPool(threads);
+		ownsPool = true;
+	}
+
+	/*
+	 * Evaluator constructor, sharing the given pool.
+	 */
+	public ParallelEvaluator(GameVariant v, ForkJoinPool p) {
+		this(v, p, false);
+	}
+
+	/*
+	 * Evaluator constructor, sharing the given pool and replaying a table
+	 * of draws built for every evaluation if common is true.
+	 */
+	public ParallelEvaluator(GameVariant v, ForkJoinPool p, boolean c) {
+		variant = v;
+		pool = p;
+		common = c;
+	}
+
+	/*
+	 * Plays a game for every cell of the matrix and returns total wins of
+	 * every row (as player 1) and every column (as player 2).
+	 */
+	@Override
+	public double[][] playMatrix(Chromosome[] rows, Chromosome[] cols, long seed) {
+		int rowTiles = (rows.length + TILE - 1) / TILE;
+		int colTiles = (cols.length + TILE - 1) / TILE;
+
+		// Partial sums of every tile, so tiles never write to the same array
+		long[][] rowWins = new long[rowTiles * colTiles][];
+		long[][] colWins = new long[rowTiles * colTiles][];
+
+		// Strategies of every row and column, compiled once
+		CompiledStrategy[] rowStrategies = CompiledStrategy.of(rows);
+		CompiledStrategy[] colStrategies = CompiledStrategy.of(cols);
+
+		// Table of draws shared by every game
+		DrawTable table = null;
+		if (common) {
+			int hands = Math.min(rows.length, cols.length);
+			if (repeats(cols)) {
+				hands = cols.length;
+			} else if (repeats(rows)) {
+				hands = rows.length;
+			}
+			table = new DrawTable(variant.getTree(), hands, new RandomStream(seed));
+		}
+		pool.invoke(new TileTask(rowStrategies, colStrategies, seed, table, colTiles, 0, rowTiles * colTiles, rowWins, colWins));
+
+		// Merge partial sums of all tiles
+		double[][] wins = new double[2][];
+		wins[0] = new double[rows.length];
+		wins[1] = new double[cols.length];
+		for (int t = 0; t < rowWins.length; t++) {
+			int r0 = (t / colTiles) * TILE;
+			int c0 = (t % colTiles) * TILE;
+			for (int i = 0; i < rowWins[t].length; i++) {
+				wins[0][r0 + i] += rowWins[t][i];
+			}
+			for (int j = 0; j < colWins[t].length; j++) {
+				wins[1][c0 + j] += colWins[t][j];
+			}
+		}
+		return wins;
+	}
+
+	/*
+	 * Shuts down the pool if the evaluator created it. A shared pool is
+	 * left to its owner.
+	 */
+	public void close() {
+		if (ownsPool) {
+			pool.shutdown();
+		}
+	}
+
+	/*
+	 * Returns true if a side of the matrix holds a single chromosome.
+	 */
+	private static boolean repeats(Chromosome[] side) {
+		for (int i = 1; i < side.length; i++) {
+			if (side[i] != side[0]) {
+				return false;
+			}
+		}
+		return side.length > 1;
+	}
+
+	/*
+	 * Task that plays a range of tiles, splitting it in halves until a
+	 * single tile is left.
+	 */
+	private class TileTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private CompiledStrategy[] rows;
+		private CompiledStrategy[] cols;
+		private long seed;
+		private DrawTable table;
+		private int colTiles;
+		private int lo;
+		private int hi;
+		private long[][] rowWins;
+		private long[][] colWins;
+
+		TileTask(CompiledStrategy[] r, CompiledStrategy[] c, long s, DrawTable dT, int cT, int l, int h, long[][] rW, long[][] cW) {
+			rows = r;
+			cols = c;
+			seed = s;
+			table = dT;
+			colTiles = cT;
+			lo = l;
+			hi = h;
+			rowWins = rW;
+			colWins = cW;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new TileTask(rows, cols, seed, table, colTiles, lo, mid, rowWins, colWins),
+						new TileTask(rows, cols, seed, table, colTiles, mid, hi, rowWins, colWins));
+			} else if (hi > lo) {
+				playTile(lo);
+			}
+		}
+
+		/*
+		 * Plays every game of a tile with the tile's own stream, or with
+		 * the table of draws.
+		 */
+		private void playTile(int t) {
+			int r0 = (t / colTiles) * TILE;
+			int c0 = (t % colTiles) * TILE;
+			int r1 = Math.min(r0 + TILE, rows.length);
+			int c1 = Math.min(c0 + TILE, cols.length);
+			long[] rW = new long[r1 - r0];
+			long[] cW = new long[c1 - c0];
+			GameTree tree = variant.getTree();
+			RandomStream rand = RandomStream.forStream(seed, t);
+			for (int i = r0; i < r1; i++) {
+				CompiledStrategy s1 = rows[i];
+				long sum = 0;
+				for (int j = c0; j < c1; j++) {
+					int w;
+					if (table == null) {
+						w = HandSimulator.gamePlay(tree, s1, cols[j], rand);
+					} else {
+						w = table.playHand((i + j) % table.getHands(), s1, cols[j]);
+					}
+					sum += w;
+					cW[j - c0] -= w;
+				}
+				rW[i - r0] = sum;
+			}
+			rowWins[t] = rW;
+			colWins[t] = cW;
+		}
+	}
+}
@@ -0,0 +1,299 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> RacingEvaluator.java
+*
+* <dt> Description:
+* <dd> Class that evaluates the fitness of a population against a fixed
+* strategy by racing its chromosomes. Games are played in rounds, and
+* the running mean and variance of the winnings of every chromosome are
+* kept with Welford's method. After each round, the confidence interval
+* of every chromosome is compared with the mean winnings at the
+* selection cut (the median by default): a chromosome whose interval is
+* wholly below it would stay below the cut whatever more games showed,
+* so it stops playing. Chromosomes above or close to the cut play up to
+* the maximum number of games, as selection, the fittest chromosome and
+* the statistics of the population compare them with each other and
+* need their fitness as precise as a full evaluation gives it. Every
+* chromosome plays with its own random stream, derived from the
+* evaluation seed and its position, so results do not depend on the
+* number of threads or on the rounds other chromosomes played.
+* Chromosomes and the strategy are compiled once per evaluation into
+* tables of thresholds, and the mean at the cut is found by selection
+* on a copy of the means instead of sorting the population.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import gameTree.*;
+import geneticAlgo.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class RacingEvaluator {
+
+	// Games played by every chromosome in a round, and before any of them
+	// can stop playing
+	public final static int ROUND_GAMES = 16;
+	public final static int MIN_GAMES = 48;
+
+	// Chromosomes racing in a single task of a round
+	public final static int CHUNK = 64;
+
+	// Variant played, pool running the rounds, width of the confidence
+	// intervals (in standard errors) and fraction of the population
+	// above the selection cut
+	private GameVariant variant;
+	private ForkJoinPool pool;
+	private double z;
+	private double cut;
+
+	/*
+	 * Evaluator constructor, with 95% confidence intervals raced against
+	 * the median.
+	 */
+	public RacingEvaluator(GameVariant v, ForkJoinPool p) {
+		this(v, p, 1.96, 0.5);
+	}
+
+	/*
+	 * Evaluator constructor, with the given width of the confidence
+	 * intervals and fraction of the population above the cut.
+	 */
+	public RacingEvaluator(GameVariant v, ForkJoinPool p, double zScore, double c) {
+		variant = v;
+		pool = p;
+		z = zScore;
+		cut = c;
+	}
+
+	/*
+	 * Evaluate fitness of population against strategy as a first player,
+	 * playing at most maxGames games with every chromosome. Returns the
+	 * number of games played.
+	 */
+	public long evalFitness(Population p1, Chromosome strategy, int maxGames, long seed) {
+		return race(p1, strategy, GameTree.PLAYER_1, maxGames, seed);
+	}
+
+	/*
+	 * Evaluate fitness of population against strategy as a second player,
+	 * playing at most maxGames games with every chromosome. Returns the
+	 * number of games played.
+	 */
+	public long evalFitness(Chromosome strategy, Population p2, int maxGames, long seed) {
+		return race(p2, strategy, GameTree.PLAYER_2, maxGames, seed);
+	}
+
+	/*
+	 * Races the chromosomes of a population until all of them are
+	 * decided, and sets their fitness to their average winnings.
+	 */
+	private long race(Population pop, Chromosome strategy, int player, int maxGames, long seed) {
+		int size = pop.getSize();
+		Race race = new Race(pop, strategy, player, maxGames, seed);
+
+		// Chromosomes still playing, in no particular order
+		int[] active = new int[size];
+		for (int i = 0; i < size; i++) {
+			active[i] = i;
+		}
+		int playing = size;
+		while (playing > 0) {
+			pool.invoke(new RoundTask(race, active, 0, playing));
+			playing = race.decide(active, playing);
+		}
+
+		PopulationStats stats = new PopulationStats(size, pop.getChromoLength());
+		long games = 0;
+		for (int i = 0; i < size; i++) {
+			pop.getChromo(i).setFitness(race.mean[i], race.games[i]);
+			stats.add(i, pop.getChromo(i));
+			games += race.games[i];
+		}
+		pop.setStats(stats);
+		return games;
+	}
+
+	/*
+	 * Games played, running mean and sum of squared deviations of the
+	 * winnings of every chromosome of a population.
+	 */
+	private class Race {
+
+		private GameTree tree;
+		private CompiledStrategy[] chromos;
+		private CompiledStrategy strategy;
+		private int player;
+		private int maxGames;
+		private int minGames;
+		private int[] games;
+		private double[] mean;
+		private double[] m2;
+		private RandomStream[] streams;
+		private double[] ranked;
+
+		Race(Population p, Chromosome s, int pl, int max, long seed) {
+			tree = variant.getTree();
+			strategy = CompiledStrategy.of(s);
+			player = pl;
+			maxGames = max;
+			minGames = Math.min(MIN_GAMES, max);
+			int size = p.getSize();
+			chromos = new CompiledStrategy[size];
+			games = new int[size];
+			mean = new double[size];
+			m2 = new double[size];
+			streams = new RandomStream[size];
+			ranked = new double[size];
+			for (int i = 0; i < size; i++) {
+				streams[i] = RandomStream.forStream(seed, i);
+				chromos[i] = CompiledStrategy.of(p.getChromo(i));
+			}
+		}
+
+		/*
+		 * Plays a round of games of a chromosome.
+		 */
+		void play(int i) {
+			CompiledStrategy ch = chromos[i];
+			RandomStream rand = streams[i];
+			int n = Math.min(ROUND_GAMES, maxGames - games[i]);
+			for (int g = 0; g < n; g++) {
+				int w;
+				if (player == GameTree.PLAYER_1) {
+					w = HandSimulator.gamePlay(tree, ch, strategy, rand);
+				} else {
+					w = -HandSimulator.gamePlay(tree, strategy, ch, rand);
+				}
+				games[i]++;
+				double delta = w - mean[i];
+				mean[i] += delta / games[i];
+				m2[i] += delta * (w - mean[i]);
+			}
+		}
+
+		/*
+		 * Returns half width of the confidence interval of the mean
+		 * winnings of a chromosome.
+		 */
+		double halfWidth(int i) {
+			if (games[i] < 2) {
+				return Double.POSITIVE_INFINITY;
+			}
+			return z * Math.sqrt(m2[i] / (games[i] - 1) / games[i]);
+		}
+
+		/*
+		 * Stops chromosomes surely below the cut, moving the ones still playing
+		 * to the front of the array, and returns how many of them are left.
+		 */
+		int decide(int[] active, int playing) {
+			boolean raced = games[active[0]] >= minGames;
+
+			// Mean winnings at the selection cut, the one with a fraction
+			// cut of the population above it
+			double boundary = 0;
+			if (raced) {
+				System.arraycopy(mean, 0, ranked, 0, mean.length);
+				boundary = select(ranked, mean.length - 1 - (int) (cut * (mean.length - 1)));
+			}
+
+			int left = 0;
+			for (int k = 0; k < playing; k++) {
+				int i = active[k];
+				boolean done = games[i] >= maxGames;
+				if (raced && !done) {
+					double h = halfWidth(i);
+					done = mean[i] + h < boundary;
+				}
+				if (!done) {
+					active[left++] = i;
+				}
+			}
+			return left;
+		}
+
+		/*
+		 * Returns the value that would be at position k if the array were
+		 * sorted in ascending order, reordering it in expected linear time.
+		 */
+		private double select(double[] a, int k) {
+			int lo = 0;
+			int hi = a.length - 1;
+			while (lo < hi) {
+				// Partition around the median of three, Hoare style
+				double pivot = median(a[lo], a[(lo + hi) >>> 1], a[hi]);
+				int i = lo;
+				int j = hi;
+				while (i <= j) {
+					while (a[i] < pivot) {
+						i++;
+					}
+					while (a[j] > pivot) {
+						j--;
+					}
+					if (i <= j) {
+						double t = a[i];
+						a[i] = a[j];
+						a[j] = t;
+						i++;
+						j--;
+					}
+				}
+				// Values between j and i equal the pivot
+				if (k <= j) {
+					hi = j;
+				} else if (k >= i) {
+					lo = i;
+				} else {
+					return a[k];
+				}
+			}
+			return a[k];
+		}
+
+		/*
+		 * Returns the median of three values.
+		 */
+		private double median(double a, double b, double c) {
+			return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+		}
+	}
+
+	/*
+	 * Task that plays a round of a range of the chromosomes still
+	 * playing, splitting it in halves until a single chunk is left.
+	 */
+	private class RoundTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private Race race;
+		private int[] active;
+		private int lo;
+		private int hi;
+
+		RoundTask(Race r, int[] a, int l, int h) {
+			race = r;
+			active = a;
+			lo = l;
+			hi = h;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo > CHUNK) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new RoundTask(race, active, lo, mid), new RoundTask(race, active, mid, hi));
+			} else {
+				for (int k = lo; k < hi; k++) {
+					race.play(active[k]);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,533 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> RunContext.java
+*
+* <dt> Description:
+* <dd> Class that holds everything a run of the genetic algorithm depends
+* on: the variant of Kuhn Poker played, the size of the populations, the
+* crossover, mutation and elitism settings and the seed every random
+* stream of the run is derived from. Nothing is kept in static fields,
+* so runs with different settings or variants can share a JVM and the
+* pool their games are played on.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import gameTree.*;
+import geneticAlgo.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RunContext {
+
+	// Variant played and parameters of the populations
+	private GameVariant variant;
+	private int size;
+	private double crossRate;
+	private double mutateRate;
+	private int eliteCount;
+
+	// Seed of the run, and stream giving the seeds of the evaluations of
+	// every generation
+	private long seed;
+	private RandomStream seeds;
+
+	// Evaluator playing sampled games and bilinear decomposition of the
+	// variant used for exact co-evolution
+	private MatrixEvaluator evaluator;
+	private BilinearPayoff payoff;
+
+	// Evaluator racing chromosomes against a fixed strategy
+	private RacingEvaluator racing;
+
+	// Fitness of chromosomes evaluated against a fixed strategy (null to
+	// evaluate every chromosome)
+	private FitnessCache cache;
+
+	// Whether chromosomes unchanged since their last evaluation against a
+	// fixed strategy keep their fitness, and games played to refine it
+	// when it was sampled
+	private boolean incremental;
+	private int refineGames;
+
+	// Games played by the evaluations of the run, counting an exact
+	// evaluation of a pair of chromosomes as a game
+	private AtomicLong games;
+
+	/*
+	 * RunContext constructor, playing sampled games on the given pool.
+	 */
+	public RunContext(GameVariant v, int s, double c, double m, int e, long sd, ForkJoinPool pool) {
+		variant = v;
+		size = s;
+		crossRate = c;
+		mutateRate = m;
+		eliteCount = e;
+		seed = sd;
+		seeds = RandomStream.forStream(seed, 0);
+		evaluator = new ParallelEvaluator(variant, pool);
+		payoff = new BilinearPayoff(variant.getTree());
+		racing = new RacingEvaluator(variant, pool);
+		games = new AtomicLong();
+	}
+
+	/*
+	 * Getter method for variant played.
+	 */
+	public GameVariant getVariant() {
+		return variant;
+	}
+
+	/*
+	 * Getter method for length of the chromosomes of the variant.
+	 */
+	public int getChromoLength() {
+		return variant.getChromoLength();
+	}
+
+	/*
+	 * Getter method for population size.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/*
+	 * Getter method for crossover rate.
+	 */
+	public double getCrossRate() {
+		return crossRate;
+	}
+
+	/*
+	 * Getter method for mutation rate.
+	 */
+	public double getMutateRate() {
+		return mutateRate;
+	}
+
+	/*
+	 * Getter method for number of chromosomes kept unaltered by breeding.
+	 */
+	public int getEliteCount() {
+		return eliteCount;
+	}
+
+	/*
+	 * Setter method for evaluator playing sampled games, such as a farm
+	 * of worker processes.
+	 */
+	public void setEvaluator(MatrixEvaluator e) {
+		evaluator = e;
+	}
+
+	/*
+	 * Setter method for cache of fitness against a fixed strategy, used
+	 * by the sampled and exact evaluations against it (null to disable).
+	 */
+	public void setFitnessCache(FitnessCache c) {
+		cache = c;
+	}
+
+	/*
+	 * Makes evaluations against a fixed strategy only evaluate chromosomes
+	 * whose genes changed since their last evaluation, playing the given
+	 * number of games (0 for none) to refine the sampled fitness of the
+	 * rest. Neither the strategy nor the kind of evaluation (sampled or
+	 * exact) must change while this is enabled.
+	 */
+	public void setIncremental(boolean inc, int refine) {
+		incremental = inc;
+		refineGames = refine;
+	}
+
+	/*
+	 * Getter method for cache of fitness against a fixed strategy.
+	 */
+	public FitnessCache getFitnessCache() {
+		return cache;
+	}
+
+	/*
+	 * Returns games played by the evaluations of the run so far.
+	 */
+	public long getGamesPlayed() {
+		return games.get();
+	}
+
+	/*
+	 * Getter method for seed of the run.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/*
+	 * Getter method for stream giving the seeds of sampled evaluations.
+	 */
+	public RandomStream getEvaluationRandom() {
+		return seeds;
+	}
+
+	/*
+	 * Returns random stream of given player, derived from the seed.
+	 */
+	public RandomStream newRandom(int player) {
+		return RandomStream.forStream(seed, player + 1);
+	}
+
+	/*
+	 * Returns empty population of the run for given player, with its own
+	 * random stream derived from the seed.
+	 */
+	public Population newPopulation(int player) {
+		Population pop = new Population(size, getChromoLength(), crossRate, mutateRate);
+		pop.setRandom(newRandom(player));
+		return pop;
+	}
+
+	/*
+	 * Evaluate fitness of two populations through co-evolution.
+	 */
+	public void evalFitness(Population p1, Population p2) {
+		// Play every chromosome in every population against each other,
+		// in parallel tiles of the game matrix
+		evaluator.evalFitness(p1, p2, p1.getSize(), seeds.nextLong());
+		games.addAndGet((long) p1.getSize() * p2.getSize());
+	}
+
+	/*
+	 * Evaluate fitness of population against strategy as a first player.
+	 */
+	public void evalFitness(Population p1, Chromosome strategy) {
+		if (cache != null || incremental) {
+			evalSelectiveFitness(p1, strategy, GameTree.PLAYER_1, false, seeds.nextLong());
+			return;
+		}
+		// Play every chromosome against the strategy as many times as the
+		// population size
+		evaluator.evalFitness(p1, strategy, p1.getSize(), seeds.nextLong());
+		games.addAndGet((long) p1.getSize() * p1.getSize());
+	}
+
+	/*
+	 * Evaluate fitness of population against strategy as a second player.
+	 */
+	public void evalFitness(Chromosome strategy, Population p2) {
+		if (cache != null || incremental) {
+			evalSelectiveFitness(p2, strategy, GameTree.PLAYER_2, false, seeds.nextLong());
+			return;
+		}
+		// Play every chromosome against the strategy as many times as the
+		// population size
+		evaluator.evalFitness(strategy, p2, p2.getSize(), seeds.nextLong());
+		games.addAndGet((long) p2.getSize() * p2.getSize());
+	}
+
+	/*
+	 * Evaluate fitness of population against strategy as a first player,
+	 * racing its chromosomes so only those above or close to the
+	 * selection cut play as many games as the population size.
+	 */
+	public void evalRacingFitness(Population p1, Chromosome strategy) {
+		games.addAndGet(racing.evalFitness(p1, strategy, p1.getSize(), seeds.nextLong()));
+	}
+
+	/*
+	 * Evaluate fitness of population against strategy as a second player,
+	 * racing its chromosomes.
+	 */
+	public void evalRacingFitness(Chromosome strategy, Population p2) {
+		games.addAndGet(racing.evalFitness(strategy, p2, p2.getSize(), seeds.nextLong()));
+	}
+
+	/*
+	 * Evaluate exact fitness of two populations through co-evolution.
+	 * Expected winnings are bilinear in the features of both chromosomes,
+	 * so the average against the whole opposite population is the same as
+	 * against its mean feature vector, and no pair has to be played.
+	 */
+	public void evalExactFitness(Population p1, Population p2) {
+		double[][] features = new double[2][];
+		features[0] = new double[payoff.getFeatureCount(0)];
+		features[1] = new double[payoff.getFeatureCount(1)];
+
+		// Mean feature vectors of both populations
+		double[][] mean = new double[2][];
+		mean[0] = new double[features[0].length];
+		mean[1] = new double[features[1].length];
+		Population[] pop = new Population[2];
+		pop[0] = p1;
+		pop[1] = p2;
+		for (int k = 0; k < 2; k++) {
+			int size = pop[k].getSize();
+			for (int i = 0; i < size; i++) {
+				payoff.features(k, pop[k].getChromo(i), features[k]);
+				for (int f = 0; f < features[k].length; f++) {
+					mean[k][f] += features[k][f] / size;
+				}
+			}
+		}
+
+		// Expected winnings of every feature against the opposite population
+		double[] against2 = payoff.multiply(mean[1]);
+		double[] against1 = payoff.multiplyTransposed(mean[0]);
+
+		// Fitness is the expected win against the opposite population
+		PopulationStats stats1 = new PopulationStats(p1.getSize(), p1.getChromoLength());
+		for (int i = 0; i < p1.getSize(); i++) {
+			payoff.features(0, p1.getChromo(i), features[0]);
+			p1.getChromo(i).setFitness(BilinearPayoff.dot(features[0], against2), 1);
+			stats1.add(i, p1.getChromo(i));
+		}
+		PopulationStats stats2 = new PopulationStats(p2.getSize(), p2.getChromoLength());
+		for (int i = 0; i < p2.getSize(); i++) {
+			payoff.features(1, p2.getChromo(i), features[1]);
+			p2.getChromo(i).setFitness(-BilinearPayoff.dot(features[1], against1), 1);
+			stats2.add(i, p2.getChromo(i));
+		}
+		p1.setStats(stats1);
+		p2.setStats(stats2);
+		games.addAndGet((long) p1.getSize() * p2.getSize());
+	}
+
+	/*
+	 * Evaluate exact fitness of population against strategy as a first player.
+	 */
+	public void evalExactFitness(Population p1, Chromosome strategy) {
+		if (cache != null || incremental) {
+			evalSelectiveFitness(p1, strategy, GameTree.PLAYER_1, true, 0);
+			return;
+		}
+		// A single expected value replaces the sampled games
+		PopulationStats stats = new PopulationStats(p1.getSize(), p1.getChromoLength());
+		for (int i = 0; i < p1.getSize(); i++) {
+			double[] gameResult = variant.expectedPlay(p1.getChromo(i), strategy);
+			p1.getChromo(i).setFitness(gameResult[0], 1);
+			stats.add(i, p1.getChromo(i));
+		}
+		p1.setStats(stats);
+		games.addAndGet(p1.getSize());
+	}
+
+	/*
+	 * Evaluate exact fitness of population against strategy as a second player.
+	 */
+	public void evalExactFitness(Chromosome strategy, Population p2) {
+		if (cache != null || incremental) {
+			evalSelectiveFitness(p2, strategy, GameTree.PLAYER_2, true, 0);
+			return;
+		}
+		// A single expected value replaces the sampled games
+		PopulationStats stats = new PopulationStats(p2.getSize(), p2.getChromoLength());
+		for (int i = 0; i < p2.getSize(); i++) {
+			double[] gameResult = variant.expectedPlay(strategy, p2.getChromo(i));
+			p2.getChromo(i).setFitness(gameResult[1], 1);
+			stats.add(i, p2.getChromo(i));
+		}
+		p2.setStats(stats);
+		games.addAndGet(p2.getSize());
+	}
+
+	/*
+	 * Evaluate fitness of population against strategy as the given
+	 * player, only playing (or computing exactly) the chromosomes whose
+	 * fitness is not known. When incremental, chromosomes whose genes
+	 * have not changed since they were evaluated keep their fitness, or
+	 * refine it with more sampled games. Otherwise, fitness is taken
+	 * from the cache for chromosomes already evaluated.
+	 */
+	private void evalSelectiveFitness(Population pop, Chromosome strategy, int player, boolean exact, long sd) {
+		long opponent = FitnessCache.opponentKey(strategy, player, exact);
+		Chromosome[] missed = new Chromosome[pop.getSize()];
+		Chromosome[] clean = new Chromosome[pop.getSize()];
+		int count = 0;
+		int cleanCount = 0;
+		for (int i = 0; i < pop.getSize(); i++) {
+			Chromosome ch = pop.getChromo(i);
+			if (incremental && !ch.isDirty()) {
+				clean[cleanCount++] = ch;
+			} else if (cache == null || cache.lookup(ch, opponent) == 0) {
+				missed[count++] = ch;
+			}
+		}
+		missed = Arrays.copyOf(missed, count);
+
+		// Games behind the fitness of every chromosome evaluated
+		long samples;
+		if (exact) {
+			for (int i = 0; i < count; i++) {
+				double[] gameResult;
+				if (player == GameTree.PLAYER_1) {
+					gameResult = variant.expectedPlay(missed[i], strategy);
+				} else {
+					gameResult = variant.expectedPlay(strategy, missed[i]);
+				}
+				missed[i].setFitness(gameResult[player], 1);
+			}
+			samples = 1;
+		} else {
+			if (count > 0) {
+				evaluator.evalFitness(missed, strategy, player, pop.getSize(), sd);
+			}
+			samples = pop.getSize();
+			if (refineGames > 0 && cleanCount > 0) {
+				refineFitness(Arrays.copyOf(clean, cleanCount), strategy, player, RandomStream.forStream(sd, 1).nextLong());
+				games.addAndGet((long) cleanCount * refineGames);
+			}
+		}
+		if (cache != null) {
+			for (int i = 0; i < count; i++) {
+				cache.put(missed[i], opponent, missed[i].getFitness(), samples);
+			}
+		}
+		pop.setStats(PopulationStats.of(pop));
+		games.addAndGet(count * samples);
+	}
+
+	/*
+	 * Plays refineGames more games with every chromosome against strategy,
+	 * averaging them with the games its fitness was found with.
+	 */
+	private void refineFitness(Chromosome[] chromos, Chromosome strategy, int player, long sd) {
+		double[] oldFitness = new double[chromos.length];
+		long[] oldSamples = new long[chromos.length];
+		for (int i = 0; i < chromos.length; i++) {
+			oldFitness[i] = chromos[i].getFitness();
+			oldSamples[i] = chromos[i].getSamples();
+		}
+		evaluator.evalFitness(chromos, strategy, player, refineGames, sd);
+		for (int i = 0; i < chromos.length; i++) {
+			long n = oldSamples[i] + refineGames;
+			chromos[i].setFitness((oldFitness[i] * oldSamples[i] + chromos[i].getFitness() * refineGames) / n, n);
+			if (cache != null) {
+				cache.put(chromos[i], FitnessCache.opponentKey(strategy, player, false), chromos[i].getFitness(), n);
+			}
+		}
+	}
+
+	/*
+	 * Returns fitness function giving the exact expected winnings against
+	 * strategy, playing as the given player.
+	 */
+	public FitnessFunction exactFitnessAgainst(final Chromosome strategy, final int player) {
+		return new FitnessFunction() {
+			public void evaluate(Population pop, Random rand) {
+				if (player == GameTree.PLAYER_1) {
+					evalExactFitness(pop, strategy);
+				} else {
+					evalExactFitness(strategy, pop);
+				}
+			}
+		};
+	}
+
+	/*
+	 * Returns fitness function playing sampled games against strategy as
+	 * the given player, seeded from the generator it is given.
+	 */
+	public FitnessFunction sampledFitnessAgainst(final Chromosome strategy, final int player) {
+		return new FitnessFunction() {
+			public void evaluate(Population pop, Random rand) {
+				if (cache != null || incremental) {
+					evalSelectiveFitness(pop, strategy, player, false, rand.nextLong());
+					return;
+				}
+				if (player == GameTree.PLAYER_1) {
+					evaluator.evalFitness(pop, strategy, pop.getSize(), rand.nextLong());
+				} else {
+					evaluator.evalFitness(strategy, pop, pop.getSize(), rand.nextLong());
+				}
+				games.addAndGet((long) pop.getSize() * pop.getSize());
+			}
+		};
+	}
+
+	/*
+	 * Returns fitness function racing chromosomes against strategy as the
+	 * given player, seeded from the generator it is given.
+	 */
+	public FitnessFunction racingFitnessAgainst(final Chromosome strategy, final int player) {
+		return new FitnessFunction() {
+			public void evaluate(Population pop, Random rand) {
+				if (player == GameTree.PLAYER_1) {
+					games.addAndGet(racing.evalFitness(pop, strategy, pop.getSize(), rand.nextLong()));
+				} else {
+					games.addAndGet(racing.evalFitness(strategy, pop, pop.getSize(), rand.nextLong()));
+				}
+			}
+		};
+	}
+
+	/*
+	 * Breed and return new generation from an old one.
+	 */
+	public Population breedGeneration(Population oldPop) {
+		// Create new population, which keeps using the random stream of the
+		// old one
+		Population newPop = new Population(size, getChromoLength(), crossRate, mutateRate);
+		Random rand = oldPop.getRandom();
+		newPop.setRandom(rand);
+
+		// Generation counter
+		int count = 0;
+
+		// Sort population when there is elitism bigger than zero
+		if (eliteCount > 0) {
+			oldPop.sort();
+		}
+
+		while ( count < size ) {
+			Chromosome[] chromo = new Chromosome[2];
+
+			// Take best chromosomes and reinsert them unaltered.
+			if (count < eliteCount) {
+				chromo[0] = new Chromosome(oldPop.getChromo(count));
+				chromo[1] = new Chromosome(oldPop.getChromo(count+1));
+				// For the rest, take chromosomes using Roulete wheel selection and
+				// then crossover/mutate them.
+			} else {
+				// Select two chromosomes with tournament selection
+				chromo[0] = new Chromosome(oldPop.selectTournament(2));
+				chromo[1] = new Chromosome(oldPop.selectTournament(2));
+
+				// Select two chromosomes with roulette wheel
+				//chromo[0] = new Chromosome(oldPop.selectRouletteWheel());
+				//chromo[1] = new Chromosome(oldPop.selectRouletteWheel());
+
+				// Select two chromosomes with rank wheel
+				//chromo[0] = new Chromosome(oldPop.selectRankWheel());
+				//chromo[1] = new Chromosome(oldPop.selectRankWheel());
+
+				// Crossover chromosomes with Uniform crossover
+				chromo = newPop.uniformCrossover(chromo, rand);
+
+				// Crossover chromosomes with One-Point crossover
+				//chromo = newPop.onePointCrossover(chromo, rand);
+
+				// Mutate chromosomes
+				chromo[0] = new Chromosome(newPop.mutate(chromo[0], rand));
+				chromo[1] = new Chromosome(newPop.mutate(chromo[1], rand));
+			}
+
+			// Add resulting chromosomes to new population, making sure that they are
+			// not clones of other members of population
+			if (!newPop.contains(chromo[0], count)) {
+				newPop.setChromo(count, chromo[0]);
+				count += 1;
+			}
+			if (count < size && !newPop.contains(chromo[1], count)) {
+				newPop.setChromo(count, chromo[1]);
+				count += 1;
+			}
+		}
+
+		return newPop;
+	}
+}
@@ -0,0 +1,472 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> WorkerFarm.java
+*
+* <dt> Description:
+* <dd> Class that evaluates the fitness of populations by sending the
+* games of the matrix to EvaluationWorker processes over local sockets.
+* The rows of the matrix are split into batches, each one with its own
+* seed, that are queued and sent to any worker with room for them. Up to
+* a given number of batches are sent to a worker before its answers
+* are read, so workers never wait for the next batch. When a worker
+* dies, the batches it had not answered are queued again for the rest.
+* When a matrix can not be played, its batches are dropped so they are
+* never played for the next one. Results only depend on the batches, so
+* they are the same whatever worker plays them.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package evolution;
+
+import gameTree.*;
+import geneticAlgo.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WorkerFarm extends MatrixEvaluator {
+
+	// Rows of the matrix played in every batch
+	public final static int BATCH_ROWS = 2 * ParallelEvaluator.TILE;
+
+	// Milliseconds waited for a worker to connect, and for the processes
+	// launched by the farm to exit before they are destroyed
+	public final static int CONNECT_TIMEOUT = 30000;
+	public final static int EXIT_TIMEOUT = 5000;
+
+	// Variant played and number of batches sent to a worker before
+	// reading its answers
+	private GameVariant variant;
+	private int depth;
+
+	// Socket workers connect to, processes launched by the farm and
+	// connections to every worker
+	private ServerSocket server;
+	private List<Process> processes;
+	private List<Connection> connections;
+
+	// Batches waiting to be sent, and ids of jobs and batches
+	private LinkedBlockingDeque<Batch> pending;
+	private AtomicLong ids;
+	private volatile boolean closed;
+
+	/*
+	 * WorkerFarm constructor, listening for workers on a free local port.
+	 */
+	public WorkerFarm(GameVariant v, int d) throws IOException {
+		variant = v;
+		depth = d;
+		server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		server.setSoTimeout(CONNECT_TIMEOUT);
+		processes = new ArrayList<Process>();
+		connections = new CopyOnWriteArrayList<Connection>();
+		pending = new LinkedBlockingDeque<Batch>();
+		ids = new AtomicLong();
+	}
+
+	/*
+	 * Returns farm with the given number of workers, each one launched as
+	 * a JVM on this machine with the same class path.
+	 */
+	public static WorkerFarm launch(GameVariant v, int workers, int d) throws IOException {
+		WorkerFarm farm = new WorkerFarm(v, d);
+		try {
+			for (int i = 0; i < workers; i++) {
+				farm.launchWorker();
+			}
+			for (int i = 0; i < workers; i++) {
+				farm.acceptWorker();
+			}
+		} catch (IOException e) {
+			farm.close();
+			throw e;
+		}
+		return farm;
+	}
+
+	/*
+	 * Getter method for port workers connect to.
+	 */
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/*
+	 * Launches a worker process, which still has to be accepted.
+	 */
+	public void launchWorker() throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				EvaluationWorker.class.getName(), "127.0.0.1", String.valueOf(getPort()));
+		builder.inheritIO();
+		synchronized (processes) {
+			processes.add(builder.start());
+		}
+	}
+
+	/*
+	 * Waits for a worker to connect, launched by the farm or started by
+	 * hand with the port of the farm, and starts sending it batches.
+	 */
+	public void acceptWorker() throws IOException {
+		Socket socket = server.accept();
+		socket.setTcpNoDelay(true);
+		Connection conn = new Connection(socket);
+		connections.add(conn);
+		conn.start();
+	}
+
+	/*
+	 * Returns number of workers still connected.
+	 */
+	public int getLiveWorkers() {
+		int live = 0;
+		for (Connection conn : connections) {
+			if (conn.alive) {
+				live++;
+			}
+		}
+		return live;
+	}
+
+	/*
+	 * Plays the matrix in batches of rows on the workers and returns total
+	 * wins of every row and every column.
+	 */
+	@Override
+	public double[][] playMatrix(Chromosome[] rows, Chromosome[] cols, long seed) {
+		int batches = (rows.length + BATCH_ROWS - 1) / BATCH_ROWS;
+		Job job = new Job(ids.incrementAndGet(), FarmProtocol.genes(cols, 0, cols.length), batches);
+
+		// Every batch has its own seed, derived from the evaluation seed
+		// and the position of the batch
+		for (int b = 0; b < batches; b++) {
+			int r0 = b * BATCH_ROWS;
+			int r1 = Math.min(r0 + BATCH_ROWS, rows.length);
+			long batchSeed = RandomStream.forStream(seed, b).nextLong();
+			pending.add(new Batch(job, b, FarmProtocol.genes(rows, r0, r1), batchSeed));
+		}
+
+		try {
+			while (!job.latch.await(100, TimeUnit.MILLISECONDS)) {
+				if (getLiveWorkers() == 0) {
+					abandon(job);
+					throw new IllegalStateException("No worker left to play the games");
+				}
+			}
+		} catch (InterruptedException e) {
+			abandon(job);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for workers", e);
+		}
+
+		// Merge wins of all batches, in order
+		double[][] wins = new double[2][];
+		wins[0] = new double[rows.length];
+		wins[1] = new double[cols.length];
+		for (int b = 0; b < batches; b++) {
+			System.arraycopy(job.rowWins[b], 0, wins[0], b * BATCH_ROWS, job.rowWins[b].length);
+			for (int j = 0; j < cols.length; j++) {
+				wins[1][j] += job.colWins[b][j];
+			}
+		}
+		return wins;
+	}
+
+	/*
+	 * Stops every worker and the processes launched by the farm.
+	 */
+	public void close() {
+		closed = true;
+		for (Connection conn : connections) {
+			conn.shutdown();
+		}
+		try {
+			server.close();
+		} catch (IOException e) {
+			System.out.println(e);
+		}
+
+		// Processes still running when the time is up are destroyed
+		long deadline = System.currentTimeMillis() + EXIT_TIMEOUT;
+		synchronized (processes) {
+			for (Process process : processes) {
+				if (!exited(process, deadline)) {
+					process.destroy();
+				}
+			}
+		}
+	}
+
+	/*
+	 * Waits for a process to exit until the given time, and returns
+	 * whether it did.
+	 */
+	private static boolean exited(Process process, long deadline) {
+		while (true) {
+			try {
+				process.exitValue();
+				return true;
+			} catch (IllegalThreadStateException e) {
+				if (System.currentTimeMillis() >= deadline) {
+					return false;
+				}
+			}
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+	}
+
+	/*
+	 * Drops the batches of a job that will not be waited for, so they
+	 * are not played for the jobs after it.
+	 */
+	private void abandon(Job job) {
+		job.abandoned = true;
+		Iterator<Batch> it = pending.iterator();
+		while (it.hasNext()) {
+			if (it.next().job == job) {
+				it.remove();
+			}
+		}
+	}
+
+	/*
+	 * Queues again a batch that was not answered.
+	 */
+	private void retry(Batch batch) {
+		if (!batch.isStale()) {
+			pending.addFirst(batch);
+		}
+	}
+
+	/*
+	 * Matrix played by playMatrix, with the columns sent with every batch
+	 * and the wins of every batch.
+	 */
+	private static class Job {
+
+		private long id;
+		private byte[] cols;
+		private double[][] rowWins;
+		private double[][] colWins;
+		private CountDownLatch latch;
+		private volatile boolean abandoned;
+
+		Job(long i, byte[] c, int batches) {
+			id = i;
+			cols = c;
+			rowWins = new double[batches][];
+			colWins = new double[batches][];
+			latch = new CountDownLatch(batches);
+		}
+	}
+
+	/*
+	 * Rows of a matrix played with the given seed.
+	 */
+	private class Batch {
+
+		private Job job;
+		private int index;
+		private byte[] rows;
+		private long seed;
+		private long id;
+		private AtomicBoolean done;
+
+		Batch(Job j, int i, byte[] r, long s) {
+			job = j;
+			index = i;
+			rows = r;
+			seed = s;
+			id = ids.incrementAndGet();
+			done = new AtomicBoolean();
+		}
+
+		/*
+		 * Returns true if the batch was answered or its job abandoned.
+		 */
+		boolean isStale() {
+			return done.get() || job.abandoned;
+		}
+
+		/*
+		 * Stores wins of the batch, unless a copy of it sent to another
+		 * worker was already answered.
+		 */
+		void complete(double[] rowWins, double[] colWins) {
+			if (done.compareAndSet(false, true)) {
+				job.rowWins[index] = rowWins;
+				job.colWins[index] = colWins;
+				job.latch.countDown();
+			}
+		}
+	}
+
+	/*
+	 * Connection to a worker, with a thread sending it batches and a
+	 * thread reading its answers.
+	 */
+	private class Connection {
+
+		private Socket socket;
+		private DataInputStream in;
+		private DataOutputStream out;
+
+		// Batches sent and not answered yet, in the order they were sent,
+		// and room for more of them
+		private ConcurrentLinkedQueue<Batch> inFlight;
+		private Semaphore room;
+
+		// Job whose columns the worker holds
+		private long sentJob;
+		private volatile boolean alive;
+
+		Connection(Socket s) throws IOException {
+			socket = s;
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			inFlight = new ConcurrentLinkedQueue<Batch>();
+			room = new Semaphore(depth);
+			sentJob = -1;
+			alive = true;
+			out.writeUTF(variant.getName());
+			out.flush();
+		}
+
+		void start() {
+			Thread sender = new Thread(new Runnable() {
+				public void run() {
+					send();
+				}
+			}, "farm-sender");
+			Thread receiver = new Thread(new Runnable() {
+				public void run() {
+					receive();
+				}
+			}, "farm-receiver");
+			sender.setDaemon(true);
+			receiver.setDaemon(true);
+			sender.start();
+			receiver.start();
+		}
+
+		/*
+		 * Sends queued batches while there is room for them.
+		 */
+		private void send() {
+			try {
+				while (alive && !closed) {
+					if (!room.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+						continue;
+					}
+					Batch batch = pending.poll(100, TimeUnit.MILLISECONDS);
+					if (batch == null || batch.isStale()) {
+						room.release();
+						continue;
+					}
+					inFlight.add(batch);
+					if (!alive) {
+						fail();
+						break;
+					}
+					synchronized (out) {
+						if (batch.job.id != sentJob) {
+							out.writeInt(FarmProtocol.COLUMNS);
+							out.writeLong(batch.job.id);
+							out.write(batch.job.cols);
+							sentJob = batch.job.id;
+						}
+						out.writeInt(FarmProtocol.BATCH);
+						out.writeLong(batch.id);
+						out.writeLong(batch.seed);
+						out.write(batch.rows);
+						out.flush();
+					}
+				}
+			} catch (IOException e) {
+				fail();
+			} catch (InterruptedException e) {
+				fail();
+			}
+		}
+
+		/*
+		 * Reads answers, which come in the order batches were sent.
+		 */
+		private void receive() {
+			try {
+				while (alive) {
+					long id = in.readLong();
+					double[] rowWins = FarmProtocol.readDoubles(in);
+					double[] colWins = FarmProtocol.readDoubles(in);
+					Batch batch = inFlight.poll();
+					if (batch == null || batch.id != id) {
+						throw new IOException("Unexpected answer for batch " + id);
+					}
+					batch.complete(rowWins, colWins);
+					room.release();
+				}
+			} catch (IOException e) {
+				fail();
+			}
+		}
+
+		/*
+		 * Closes connection to a dead worker, queueing its batches again.
+		 */
+		private void fail() {
+			alive = false;
+			try {
+				socket.close();
+			} catch (IOException e) {
+				System.out.println(e);
+			}
+			Batch batch;
+			while ((batch = inFlight.poll()) != null) {
+				retry(batch);
+			}
+		}
+
+		/*
+		 * Asks the worker to stop.
+		 */
+		void shutdown() {
+			if (alive) {
+				try {
+					synchronized (out) {
+						out.writeInt(FarmProtocol.SHUTDOWN);
+						out.flush();
+					}
+				} catch (IOException e) {
+					System.out.println(e);
+				}
+			}
+			alive = false;
+		}
+	}
+}
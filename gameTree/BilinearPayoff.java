@@ -0,0 +1,203 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> BilinearPayoff.java
+*
+* <dt> Description:
+* <dd> Class that decomposes the expected winnings of a GameTree into a
+* bilinear form x1 * A * x2. The feature vector of a chromosome holds,
+* for every card, the probability of the chromosome playing each of its
+* own sequences of actions, so the expected winnings of player 1 are the
+* product of both feature vectors with a payoff matrix A that only
+* depends on the tree. As the form is linear in each player, the average
+* winnings against a whole population are obtained with the mean feature
+* vector of that population.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+import geneticAlgo.*;
+
+import java.util.Arrays;
+
+public class BilinearPayoff {
+
+	// Tree being decomposed
+	private GameTree tree;
+
+	// Number of sequences of each player (sequence 0 is the empty one)
+	private int[] sequences = new int[2];
+
+	// Decisions of each player in the order they are visited from the
+	// root: node, sequence leading to it and sequence after following yes
+	// (sequence after no is the next one)
+	private int[][] decisionNode = new int[2][];
+	private int[][] decisionParent = new int[2][];
+	private int[][] decisionYes = new int[2][];
+
+	// Payoff matrix for player 1, features of player 1 in rows
+	private double[] matrix;
+
+	/*
+	 * Constructor that decomposes the given tree.
+	 */
+	public BilinearPayoff(GameTree t) {
+		tree = t;
+
+		// Number sequences of both players
+		for (int p = 0; p < 2; p++) {
+			decisionNode[p] = new int[t.getNodeCount()];
+			decisionParent[p] = new int[t.getNodeCount()];
+			decisionYes[p] = new int[t.getNodeCount()];
+			sequences[p] = 1;
+		}
+		int[] decisions = new int[2];
+		numberSequences(t.getRoot(), 0, 0, decisions);
+		for (int p = 0; p < 2; p++) {
+			decisionNode[p] = Arrays.copyOf(decisionNode[p], decisions[p]);
+			decisionParent[p] = Arrays.copyOf(decisionParent[p], decisions[p]);
+			decisionYes[p] = Arrays.copyOf(decisionYes[p], decisions[p]);
+		}
+
+		// Add winnings of every leaf for every deal to the matrix
+		matrix = new double[getFeatureCount(0) * getFeatureCount(1)];
+		addLeaves(t.getRoot(), 0, 0, new int[2]);
+	}
+
+	/*
+	 * Getter method for number of features of a player.
+	 */
+	public int getFeatureCount(int p) {
+		return GameTree.CARDS * sequences[p];
+	}
+
+	/*
+	 * Getter method for tree being decomposed.
+	 */
+	public GameTree getTree() {
+		return tree;
+	}
+
+	/*
+	 * Computes feature vector of a chromosome playing as player p, the
+	 * probability of playing every sequence for every card.
+	 */
+	public void features(int p, Chromosome ch, double[] out) {
+		int s = sequences[p];
+		int[] node = decisionNode[p];
+		int[] parent = decisionParent[p];
+		int[] yes = decisionYes[p];
+		for (int c = 0; c < GameTree.CARDS; c++) {
+			int base = c * s;
+			out[base] = 1;
+			for (int d = 0; d < node.length; d++) {
+				double g = ch.getGene(tree.getGene(node[d], c));
+				double reach = out[base + parent[d]];
+				out[base + yes[d]] = reach * g;
+				out[base + yes[d] + 1] = reach * (1 - g);
+			}
+		}
+	}
+
+	/*
+	 * Returns A * x2, the expected winnings of player 1 for each of his
+	 * features against player 2 features.
+	 */
+	public double[] multiply(double[] x2) {
+		int f1 = getFeatureCount(0);
+		int f2 = getFeatureCount(1);
+		double[] y = new double[f1];
+		for (int i = 0; i < f1; i++) {
+			double sum = 0;
+			for (int j = 0; j < f2; j++) {
+				sum += matrix[i * f2 + j] * x2[j];
+			}
+			y[i] = sum;
+		}
+		return y;
+	}
+
+	/*
+	 * Returns x1 * A, the expected winnings of player 1 for each of player
+	 * 2 features against player 1 features.
+	 */
+	public double[] multiplyTransposed(double[] x1) {
+		int f1 = getFeatureCount(0);
+		int f2 = getFeatureCount(1);
+		double[] y = new double[f2];
+		for (int i = 0; i < f1; i++) {
+			if (x1[i] != 0) {
+				for (int j = 0; j < f2; j++) {
+					y[j] += x1[i] * matrix[i * f2 + j];
+				}
+			}
+		}
+		return y;
+	}
+
+	/*
+	 * Returns dot product of two vectors.
+	 */
+	public static double dot(double[] a, double[] b) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+	/*
+	 * Assigns sequences to the decisions of both players below node.
+	 */
+	private void numberSequences(int node, int seq1, int seq2, int[] decisions) {
+		if (tree.isTerminal(node)) {
+			return;
+		}
+		int p = tree.getPlayer(node);
+		int d = decisions[p]++;
+		decisionNode[p][d] = node;
+		decisionParent[p][d] = (p == GameTree.PLAYER_1) ? seq1 : seq2;
+		decisionYes[p][d] = sequences[p];
+		sequences[p] += 2;
+		int yes = decisionYes[p][d];
+		if (p == GameTree.PLAYER_1) {
+			numberSequences(tree.getYes(node), yes, seq2, decisions);
+			numberSequences(tree.getNo(node), yes + 1, seq2, decisions);
+		} else {
+			numberSequences(tree.getYes(node), seq1, yes, decisions);
+			numberSequences(tree.getNo(node), seq1, yes + 1, decisions);
+		}
+	}
+
+	/*
+	 * Adds winnings of the leaves below node to the matrix, visiting the
+	 * decisions in the same order as numberSequences.
+	 */
+	private void addLeaves(int node, int seq1, int seq2, int[] decisions) {
+		if (tree.isTerminal(node)) {
+			int f2 = getFeatureCount(1);
+			double deals = GameTree.CARDS * (GameTree.CARDS - 1);
+			for (int c1 = 0; c1 < GameTree.CARDS; c1++) {
+				for (int c2 = 0; c2 < GameTree.CARDS; c2++) {
+					if (c1 != c2) {
+						int row = c1 * sequences[0] + seq1;
+						int col = c2 * sequences[1] + seq2;
+						matrix[row * f2 + col] += tree.payoff(node, c1, c2) / deals;
+					}
+				}
+			}
+			return;
+		}
+		int p = tree.getPlayer(node);
+		int yes = decisionYes[p][decisions[p]++];
+		if (p == GameTree.PLAYER_1) {
+			addLeaves(tree.getYes(node), yes, seq2, decisions);
+			addLeaves(tree.getNo(node), yes + 1, seq2, decisions);
+		} else {
+			addLeaves(tree.getYes(node), seq1, yes, decisions);
+			addLeaves(tree.getNo(node), seq1, yes + 1, decisions);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> CompiledStrategy.java
+*
+* <dt> Description:
+* <dd> Class that holds the strategy of a chromosome compiled for the
+* betting tree: the probability of every gene turned into an integer
+* threshold on 53 random bits. As genes are laid out one information
+* set after another, with one gene per card, the thresholds form a flat
+* [information set][card] table indexed by GameTree.getGene. A decision
+* then takes one array load and one comparison of raw random bits,
+* instead of a conversion to double. Drawing u = nextLong() >>> 11 and
+* following the yes branch when u <= floor(g * 2^53) takes the same
+* decision as nextDouble() <= g for a RandomStream, whose doubles are
+* those same 53 bits, so compiled games play exactly the same hands.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+import geneticAlgo.*;
+
+public class CompiledStrategy {
+
+	// Number of random bits compared with the thresholds
+	public final static int BITS = 53;
+
+	// Threshold of every gene
+	private long[] thresholds;
+
+	/*
+	 * CompiledStrategy constructor for chromosomes of given length.
+	 */
+	public CompiledStrategy(int length) {
+		thresholds = new long[length];
+	}
+
+	/*
+	 * Returns strategy compiled from the genes of a chromosome.
+	 */
+	public static CompiledStrategy of(Chromosome ch) {
+		CompiledStrategy s = new CompiledStrategy(ch.getLength());
+		s.compile(ch);
+		return s;
+	}
+
+	/*
+	 * Returns strategies compiled from the genes of every chromosome,
+	 * compiling chromosomes held more than once only once.
+	 */
+	public static CompiledStrategy[] of(Chromosome[] chromos) {
+		CompiledStrategy[] s = new CompiledStrategy[chromos.length];
+		for (int i = 0; i < chromos.length; i++) {
+			if (i > 0 && chromos[i] == chromos[i-1]) {
+				s[i] = s[i-1];
+			} else {
+				s[i] = of(chromos[i]);
+			}
+		}
+		return s;
+	}
+
+	/*
+	 * Compiles the genes of a chromosome into the thresholds.
+	 */
+	public void compile(Chromosome ch) {
+		for (int g = 0; g < thresholds.length; g++) {
+			thresholds[g] = threshold(ch.getGene(g));
+		}
+	}
+
+	/*
+	 * Returns threshold of a gene: the largest 53 bit number u for which
+	 * u * 2^-53 <= g (-1 when no number is).
+	 */
+	public static long threshold(double g) {
+		if (g < 0) {
+			return -1;
+		}
+		if (g >= 1) {
+			return 1L << BITS;
+		}
+		// Exact, as multiplying by a power of two keeps every bit of g
+		return (long) (g * 0x1.0p53);
+	}
+
+	/*
+	 * Returns random bits compared with the thresholds, drawn from the
+	 * generator.
+	 */
+	public static long draw(RandomStream rand) {
+		return rand.nextLong() >>> (64 - BITS);
+	}
+
+	/*
+	 * Getter method for threshold of a gene.
+	 */
+	public long getThreshold(int gene) {
+		return thresholds[gene];
+	}
+
+	/*
+	 * Getter method for table of thresholds, by gene.
+	 */
+	long[] getThresholds() {
+		return thresholds;
+	}
+}
@@ -0,0 +1,68 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> DrawTable.java
+*
+* <dt> Description:
+* <dd> Class that holds the randomness of a fixed number of hands: the
+* cards dealt in every hand and the random bits of every decision that
+* can be taken in it, compared with the thresholds of compiled
+* strategies. Replaying the table for every chromosome makes all
+* of them face the same deals and the same decision draws (common random
+* numbers), so differences in their winnings come from their genes and
+* not from luck.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+import geneticAlgo.*;
+
+public class DrawTable {
+
+	// Betting tree played, number of hands and decisions drawn per hand
+	private GameTree tree;
+	private int hands;
+	private int depth;
+
+	// Cards of both players in every hand, and decision draws of every
+	// hand one after the other
+	private int[] cards;
+	private long[] draws;
+
+	/*
+	 * DrawTable constructor, drawing the given number of hands from the
+	 * generator, dealt as in HandSimulator.
+	 */
+	public DrawTable(GameTree t, int h, RandomStream rand) {
+		tree = t;
+		hands = h;
+		depth = tree.getDepth();
+		cards = new int[2 * hands];
+		draws = new long[hands * depth];
+		for (int g = 0; g < hands; g++) {
+			int c1 = rand.nextInt(GameTree.CARDS);
+			cards[2 * g] = c1;
+			cards[2 * g + 1] = (c1 + 1 + rand.nextInt(GameTree.CARDS - 1)) % GameTree.CARDS;
+			for (int k = 0; k < depth; k++) {
+				draws[g * depth + k] = CompiledStrategy.draw(rand);
+			}
+		}
+	}
+
+	/*
+	 * Getter method for number of hands in the table.
+	 */
+	public int getHands() {
+		return hands;
+	}
+
+	/*
+	 * Plays the given hand of the table between two compiled strategies,
+	 * returning the amount won by player 1.
+	 */
+	public int playHand(int g, CompiledStrategy s1, CompiledStrategy s2) {
+		return HandSimulator.handPlay(tree, cards[2 * g], cards[2 * g + 1], s1, s2, draws, g * depth);
+	}
+}
@@ -0,0 +1,73 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> ExactEvaluator.java
+*
+* <dt> Description:
+* <dd> Class that computes the exact expected winnings of two chromosomes
+* playing any Kuhn Poker variant described by a GameTree, propagating
+* the probabilities held in the genes through the betting tree for every
+* possible deal.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+import geneticAlgo.*;
+
+public class ExactEvaluator {
+
+	/*
+	 * Return the expected winnings of each player, averaged over all the
+	 * equally likely deals of two different cards.
+	 */
+	public static double[] expectedPlay(GameTree tree, Chromosome ch1, Chromosome ch2) {
+		double ev = 0;
+		for (int c1 = 0; c1 < GameTree.CARDS; c1++) {
+			for (int c2 = 0; c2 < GameTree.CARDS; c2++) {
+				if (c1 != c2) {
+					ev += expectedHandPlay(tree, c1, c2, ch1, ch2);
+				}
+			}
+		}
+
+		// Game is zero-sum, so player 2 wins what player 1 loses
+		double[] wins = new double[2];
+		wins[0] = ev / (GameTree.CARDS * (GameTree.CARDS - 1));
+		wins[1] = -wins[0];
+		return wins;
+	}
+
+	/*
+	 * Return the expected winnings of player 1 for a hand with the given
+	 * cards.
+	 */
+	public static double expectedHandPlay(GameTree tree, int c1, int c2, Chromosome ch1, Chromosome ch2) {
+		return expectedValue(tree, tree.getRoot(), c1, c2, ch1, ch2);
+	}
+
+	/*
+	 * Return the expected winnings of player 1 from the given node, the
+	 * sum of both subtrees weighted by the probability of reaching them.
+	 */
+	private static double expectedValue(GameTree tree, int node, int c1, int c2, Chromosome ch1, Chromosome ch2) {
+		if (tree.isTerminal(node)) {
+			return tree.payoff(node, c1, c2);
+		}
+		double p;
+		if (tree.getPlayer(node) == GameTree.PLAYER_1) {
+			p = ch1.getGene(tree.getGene(node, c1));
+		} else {
+			p = ch2.getGene(tree.getGene(node, c2));
+		}
+		double ev = 0;
+		if (p > 0) {
+			ev += p * expectedValue(tree, tree.getYes(node), c1, c2, ch1, ch2);
+		}
+		if (p < 1) {
+			ev += (1 - p) * expectedValue(tree, tree.getNo(node), c1, c2, ch1, ch2);
+		}
+		return ev;
+	}
+}
@@ -0,0 +1,260 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> GameTree.java
+*
+* <dt> Description:
+* <dd> Class that represents the betting tree of a Kuhn Poker variant.
+* Nodes are stored in flat arrays: decision nodes hold the player to act
+* and the first gene of the strategy used (one gene per card), terminal
+* nodes hold the amount each player has put in the pot.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+import java.util.Arrays;
+
+public class GameTree {
+
+	// Players in the game
+	public final static int PLAYER_1 = 0;
+	public final static int PLAYER_2 = 1;
+
+	// Number of cards in the deck (J = 0, Q = 1, K = 2)
+	public final static int CARDS = 3;
+
+	// Kinds of node in the tree
+	public final static int DECISION = 0;
+	public final static int FOLD = 1;
+	public final static int SHOWDOWN = 2;
+
+	// Length of the chromosomes playing the game, root of the tree and
+	// most decisions taken in a hand
+	private int chromoLength;
+	private int root;
+	private int depth;
+
+	// Node arrays (children are only used by decision nodes, contributions
+	// only by terminal nodes)
+	private int[] kind;
+	private int[] player;
+	private int[] gene;
+	private int[] yes;
+	private int[] no;
+	private int[] contrib1;
+	private int[] contrib2;
+
+	/*
+	 * Tree constructor, used by the builder.
+	 */
+	private GameTree(Builder b, int r) {
+		chromoLength = b.chromoLength;
+		root = r;
+		kind = Arrays.copyOf(b.kind, b.count);
+		player = Arrays.copyOf(b.player, b.count);
+		gene = Arrays.copyOf(b.gene, b.count);
+		yes = Arrays.copyOf(b.yes, b.count);
+		no = Arrays.copyOf(b.no, b.count);
+		contrib1 = Arrays.copyOf(b.contrib1, b.count);
+		contrib2 = Arrays.copyOf(b.contrib2, b.count);
+
+		// Children are always built before their parents
+		int[] decisions = new int[b.count];
+		for (int node = 0; node < b.count; node++) {
+			if (kind[node] == DECISION) {
+				decisions[node] = 1 + Math.max(decisions[yes[node]], decisions[no[node]]);
+			}
+		}
+		depth = decisions[root];
+	}
+
+	/*
+	 * Getter method for length of chromosomes playing the game
+	 */
+	public int getChromoLength() {
+		return chromoLength;
+	}
+
+	/*
+	 * Getter method for root node
+	 */
+	public int getRoot() {
+		return root;
+	}
+
+	/*
+	 * Getter method for most decisions taken in a hand
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/*
+	 * Getter method for number of nodes in tree
+	 */
+	public int getNodeCount() {
+		return kind.length;
+	}
+
+	/*
+	 * Returns true if node ends the hand.
+	 */
+	public boolean isTerminal(int node) {
+		return kind[node] != DECISION;
+	}
+
+	/*
+	 * Getter method for kind of node
+	 */
+	public int getKind(int node) {
+		return kind[node];
+	}
+
+	/*
+	 * Getter method for player acting in a decision node, or winner of
+	 * a fold node.
+	 */
+	public int getPlayer(int node) {
+		return player[node];
+	}
+
+	/*
+	 * Getter method for index of the gene used in a decision node by a
+	 * player holding the given card.
+	 */
+	public int getGene(int node, int card) {
+		return gene[node] + card;
+	}
+
+	/*
+	 * Getter method for first gene of strategy used in a decision node.
+	 */
+	public int getGeneOffset(int node) {
+		return gene[node];
+	}
+
+	/*
+	 * Getter method for child followed with the probability in the gene
+	 */
+	public int getYes(int node) {
+		return yes[node];
+	}
+
+	/*
+	 * Getter method for child followed otherwise
+	 */
+	public int getNo(int node) {
+		return no[node];
+	}
+
+	/*
+	 * Getter method for amount put in pot by a player in terminal node.
+	 */
+	public int getContribution(int node, int p) {
+		return (p == PLAYER_1) ? contrib1[node] : contrib2[node];
+	}
+
+	/*
+	 * Returns amount won by player 1 in a terminal node with the given
+	 * cards (player 2 wins the opposite amount).
+	 */
+	public int payoff(int node, int c1, int c2) {
+		boolean p1Wins;
+		if (kind[node] == FOLD) {
+			p1Wins = (player[node] == PLAYER_1);
+		} else {
+			p1Wins = (c1 > c2);
+		}
+		if (p1Wins) {
+			return contrib2[node];
+		} else {
+			return -contrib1[node];
+		}
+	}
+
+	/*
+	 * Class used to build a tree from the leaves up to the root.
+	 */
+	public static class Builder {
+
+		private int chromoLength;
+		private int count;
+		private int[] kind = new int[16];
+		private int[] player = new int[16];
+		private int[] gene = new int[16];
+		private int[] yes = new int[16];
+		private int[] no = new int[16];
+		private int[] contrib1 = new int[16];
+		private int[] contrib2 = new int[16];
+
+		/*
+		 * Builder constructor for chromosomes of given length.
+		 */
+		public Builder(int cL) {
+			chromoLength = cL;
+			count = 0;
+		}
+
+		/*
+		 * Adds decision node where player follows yes with the
+		 * probability in gene (offset + card), and no otherwise.
+		 */
+		public int decision(int p, int offset, int yesNode, int noNode) {
+			if (offset < 0 || offset + CARDS > chromoLength) {
+				throw new IllegalArgumentException("Gene " + offset + " out of chromosome of length " + chromoLength);
+			}
+			int node = add(DECISION, p, 0, 0);
+			gene[node] = offset;
+			yes[node] = yesNode;
+			no[node] = noNode;
+			return node;
+		}
+
+		/*
+		 * Adds terminal node where a player folds and winner takes the pot.
+		 */
+		public int fold(int winner, int c1, int c2) {
+			return add(FOLD, winner, c1, c2);
+		}
+
+		/*
+		 * Adds terminal node where cards are compared to find winner.
+		 */
+		public int showdown(int c1, int c2) {
+			return add(SHOWDOWN, -1, c1, c2);
+		}
+
+		/*
+		 * Returns tree with the given root node.
+		 */
+		public GameTree build(int root) {
+			return new GameTree(this, root);
+		}
+
+		/*
+		 * Adds node to arrays, growing them when full.
+		 */
+		private int add(int k, int p, int c1, int c2) {
+			if (count == kind.length) {
+				int l = 2 * count;
+				kind = Arrays.copyOf(kind, l);
+				player = Arrays.copyOf(player, l);
+				gene = Arrays.copyOf(gene, l);
+				yes = Arrays.copyOf(yes, l);
+				no = Arrays.copyOf(no, l);
+				contrib1 = Arrays.copyOf(contrib1, l);
+				contrib2 = Arrays.copyOf(contrib2, l);
+			}
+			kind[count] = k;
+			player[count] = p;
+			gene[count] = -1;
+			yes[count] = -1;
+			no[count] = -1;
+			contrib1[count] = c1;
+			contrib2[count] = c2;
+			return count++;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> GameVariant.java
+*
+* <dt> Description:
+* <dd> Interface implemented by every variant of Kuhn Poker the genetic
+* algorithm can be run on. A run binds a single implementation, so the
+* games it plays always call the same methods. Variants are found with
+* a ServiceLoader, listing them in the file
+* META-INF/services/gameTree.GameVariant, so a new variant can be added
+* without changing the driver.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+import geneticAlgo.*;
+
+import java.util.Random;
+
+public interface GameVariant {
+
+	/*
+	 * Returns name the variant is looked up by.
+	 */
+	String getName();
+
+	/*
+	 * Returns number of genes of the chromosomes playing the variant.
+	 */
+	int getChromoLength();
+
+	/*
+	 * Returns betting tree of the variant.
+	 */
+	GameTree getTree();
+
+	/*
+	 * Plays a hand with random cards and decisions taken from the given
+	 * generator, and returns the amount won by player 1 (player 2 wins
+	 * the opposite).
+	 */
+	int playHand(Chromosome ch1, Chromosome ch2, Random rand);
+
+	/*
+	 * Plays the given number of hands, adding the amount won by each
+	 * player to the accumulator.
+	 */
+	void playGames(Chromosome ch1, Chromosome ch2, int games, Random rand, HandAccumulator acc);
+
+	/*
+	 * Returns exact expected winnings of each player.
+	 */
+	double[] expectedPlay(Chromosome ch1, Chromosome ch2);
+}
@@ -0,0 +1,110 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> GameVariants.java
+*
+* <dt> Description:
+* <dd> Registry of the variants of Kuhn Poker available to the genetic
+* algorithm. It holds the variants listed for the ServiceLoader, any
+* variant registered while running and the variants read from a
+* description of their betting tree when looked up by its path.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+public class GameVariants {
+
+	// Variants in the order they were found or registered
+	private static List<GameVariant> variants;
+
+	/*
+	 * Adds a variant to the registry, replacing one with the same name.
+	 */
+	public static synchronized void register(GameVariant variant) {
+		load();
+		GameVariant old = find(variant.getName());
+		if (old != null) {
+			variants.remove(old);
+		}
+		variants.add(variant);
+	}
+
+	/*
+	 * Returns all the variants available.
+	 */
+	public static synchronized List<GameVariant> all() {
+		load();
+		return new ArrayList<GameVariant>(variants);
+	}
+
+	/*
+	 * Returns variant with the given name, ignoring case. A name that is
+	 * not registered but is the path of a file is read as a description
+	 * of the betting tree, and the variant read is registered.
+	 */
+	public static synchronized GameVariant forName(String name) {
+		load();
+		GameVariant variant = find(name);
+		if (variant == null) {
+			Path file = Paths.get(name);
+			if (!Files.isRegularFile(file)) {
+				throw new IllegalArgumentException("Unknown variant: " + name);
+			}
+			try {
+				variant = TreeVariant.load(file);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Can not read variant: " + name, e);
+			}
+			variants.add(variant);
+		}
+		return variant;
+	}
+
+	/*
+	 * Returns first variant whose chromosomes have the given length.
+	 */
+	public static synchronized GameVariant forChromoLength(int length) {
+		load();
+		for (GameVariant variant : variants) {
+			if (variant.getChromoLength() == length) {
+				return variant;
+			}
+		}
+		throw new IllegalArgumentException("No variant with chromosome length " + length);
+	}
+
+	/*
+	 * Finds the variants listed for the ServiceLoader the first time the
+	 * registry is used.
+	 */
+	private static void load() {
+		if (variants == null) {
+			variants = new ArrayList<GameVariant>();
+			for (GameVariant variant : ServiceLoader.load(GameVariant.class)) {
+				variants.add(variant);
+			}
+		}
+	}
+
+	/*
+	 * Returns registered variant with the given name, or null.
+	 */
+	private static GameVariant find(String name) {
+		for (GameVariant variant : variants) {
+			if (variant.getName().equalsIgnoreCase(name)) {
+				return variant;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,71 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> HandAccumulator.java
+*
+* <dt> Description:
+* <dd> Class that accumulates the winnings of both players over many
+* hands, so the hands can be played without allocating any result.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+public class HandAccumulator {
+
+	// Total amount won by each player and number of hands played
+	private long wins1;
+	private long wins2;
+	private long hands;
+
+	/*
+	 * Accumulator constructor
+	 */
+	public HandAccumulator() {
+		reset();
+	}
+
+	/*
+	 * Method to reset all totals to zero.
+	 */
+	public void reset() {
+		wins1 = 0;
+		wins2 = 0;
+		hands = 0;
+	}
+
+	/*
+	 * Adds the result of a hand won by player 1 (player 2 wins the
+	 * opposite amount).
+	 */
+	public void add(int win1) {
+		wins1 += win1;
+		wins2 -= win1;
+		hands++;
+	}
+
+	/*
+	 * Getter method for total amount won by a player.
+	 */
+	public long getWins(int p) {
+		return (p == GameTree.PLAYER_1) ? wins1 : wins2;
+	}
+
+	/*
+	 * Getter method for number of hands played.
+	 */
+	public long getHands() {
+		return hands;
+	}
+
+	/*
+	 * Returns average amount won by a player in every hand.
+	 */
+	public double avgWins(int p) {
+		if (hands == 0) {
+			return 0;
+		}
+		return (double) getWins(p) / hands;
+	}
+}
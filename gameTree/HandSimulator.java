@@ -0,0 +1,144 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> HandSimulator.java
+*
+* <dt> Description:
+* <dd> Class that plays sampled hands of any Kuhn Poker variant described
+* by a GameTree without allocating any object. Cards are dealt as
+* integers (J = 0, Q = 1, K = 2), every decision is drawn from the
+* random generator passed by the caller and winnings are returned as an
+* int or added to a reusable HandAccumulator.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+import geneticAlgo.*;
+
+import java.util.Random;
+
+public class HandSimulator {
+
+	/*
+	 * Deals two different cards and plays a hand, returning the amount won
+	 * by player 1.
+	 */
+	public static int gamePlay(GameTree tree, Chromosome ch1, Chromosome ch2, Random rand) {
+		int c1 = rand.nextInt(GameTree.CARDS);
+		int c2 = (c1 + 1 + rand.nextInt(GameTree.CARDS - 1)) % GameTree.CARDS;
+		return handPlay(tree, c1, c2, ch1, ch2, rand);
+	}
+
+	/*
+	 * Deals two different cards and plays a hand, adding the result to
+	 * the accumulator.
+	 */
+	public static void gamePlay(GameTree tree, Chromosome ch1, Chromosome ch2, Random rand, HandAccumulator acc) {
+		acc.add(gamePlay(tree, ch1, ch2, rand));
+	}
+
+	/*
+	 * Plays the given number of games between two chromosomes, adding
+	 * their results to the accumulator. Chromosomes are compiled first
+	 * when games are drawn from a RandomStream, playing the same hands.
+	 */
+	public static void playGames(GameTree tree, Chromosome ch1, Chromosome ch2, int games, Random rand, HandAccumulator acc) {
+		if (rand instanceof RandomStream) {
+			CompiledStrategy s1 = CompiledStrategy.of(ch1);
+			CompiledStrategy s2 = CompiledStrategy.of(ch2);
+			for (int g = 0; g < games; g++) {
+				acc.add(gamePlay(tree, s1, s2, (RandomStream) rand));
+			}
+			return;
+		}
+		for (int g = 0; g < games; g++) {
+			acc.add(gamePlay(tree, ch1, ch2, rand));
+		}
+	}
+
+	/*
+	 * Plays a hand with the given cards, returning the amount won by
+	 * player 1. A player follows the yes branch of a decision when a
+	 * random double is not above his gene, as in the variant classes.
+	 */
+	public static int handPlay(GameTree tree, int c1, int c2, Chromosome ch1, Chromosome ch2, Random rand) {
+		int node = tree.getRoot();
+		while (!tree.isTerminal(node)) {
+			double g;
+			if (tree.getPlayer(node) == GameTree.PLAYER_1) {
+				g = ch1.getGene(tree.getGene(node, c1));
+			} else {
+				g = ch2.getGene(tree.getGene(node, c2));
+			}
+			if (rand.nextDouble() <= g) {
+				node = tree.getYes(node);
+			} else {
+				node = tree.getNo(node);
+			}
+		}
+		return tree.payoff(node, c1, c2);
+	}
+
+	/*
+	 * Deals two different cards and plays a hand between two compiled
+	 * strategies, returning the amount won by player 1. Plays the same
+	 * hand as gamePlay with the chromosomes they were compiled from.
+	 */
+	public static int gamePlay(GameTree tree, CompiledStrategy s1, CompiledStrategy s2, RandomStream rand) {
+		int c1 = rand.nextInt(GameTree.CARDS);
+		int c2 = (c1 + 1 + rand.nextInt(GameTree.CARDS - 1)) % GameTree.CARDS;
+		return handPlay(tree, c1, c2, s1, s2, rand);
+	}
+
+	/*
+	 * Plays a hand with the given cards between two compiled strategies,
+	 * comparing random bits with the threshold of every decision.
+	 */
+	public static int handPlay(GameTree tree, int c1, int c2, CompiledStrategy s1, CompiledStrategy s2, RandomStream rand) {
+		long[] t1 = s1.getThresholds();
+		long[] t2 = s2.getThresholds();
+		int node = tree.getRoot();
+		while (!tree.isTerminal(node)) {
+			long t;
+			if (tree.getPlayer(node) == GameTree.PLAYER_1) {
+				t = t1[tree.getGene(node, c1)];
+			} else {
+				t = t2[tree.getGene(node, c2)];
+			}
+			if (CompiledStrategy.draw(rand) <= t) {
+				node = tree.getYes(node);
+			} else {
+				node = tree.getNo(node);
+			}
+		}
+		return tree.payoff(node, c1, c2);
+	}
+
+	/*
+	 * Plays a hand with the given cards between two compiled strategies,
+	 * taking the random bits of the k-th decision from draws[off + k]
+	 * instead of a generator.
+	 */
+	public static int handPlay(GameTree tree, int c1, int c2, CompiledStrategy s1, CompiledStrategy s2, long[] draws, int off) {
+		long[] t1 = s1.getThresholds();
+		long[] t2 = s2.getThresholds();
+		int node = tree.getRoot();
+		int k = off;
+		while (!tree.isTerminal(node)) {
+			long t;
+			if (tree.getPlayer(node) == GameTree.PLAYER_1) {
+				t = t1[tree.getGene(node, c1)];
+			} else {
+				t = t2[tree.getGene(node, c2)];
+			}
+			if (draws[k++] <= t) {
+				node = tree.getYes(node);
+			} else {
+				node = tree.getNo(node);
+			}
+		}
+		return tree.payoff(node, c1, c2);
+	}
+}
@@ -0,0 +1,363 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> TreeParser.java
+*
+* <dt> Description:
+* <dd> Class that builds the betting tree of a Kuhn Poker variant from a
+* description of it, so a variant can be defined in a file instead of a
+* class. A description holds one statement per line ('#' starts a
+* comment):
+* <pre>
+* ante 1
+* node &lt;name&gt; &lt;p1|p2&gt; &lt;information set&gt;
+*     check -&gt; &lt;node|showdown&gt;
+*     bet &lt;amount&gt; -&gt; &lt;node|showdown&gt;
+*     call [-&gt; &lt;node|showdown&gt;]
+*     fold
+* </pre>
+* The first node is the root, and every node lists the actions of the
+* player from the most passive to the most aggressive. A bet (or raise)
+* adds the amount to what the player has put in the pot, a call matches
+* the opponent and goes to showdown unless told otherwise, and a fold
+* gives the pot to the opponent. Nodes sharing an information set use
+* the same genes, so a player can not tell them apart. Every
+* information set of n actions takes n - 1 genes per card, in the order
+* it first appears: gene k is the probability of taking one of the
+* actions after action k, given that none of the first k were taken.
+* Nodes are expanded on every path they are reached by, keeping track of
+* the pot, so the same node can follow bets of different amounts.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TreeParser {
+
+	// Target of the actions that end the hand comparing cards
+	public final static String SHOWDOWN = "showdown";
+
+	// Amount each player puts in the pot before the cards are dealt,
+	// unless the description sets it
+	public final static int ANTE = 1;
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	// Kinds of action
+	private final static int CHECK = 0;
+	private final static int BET = 1;
+	private final static int CALL = 2;
+	private final static int FOLD = 3;
+
+	// Name of the description, used in error messages
+	private String source;
+
+	// Ante, nodes by name in the order they were declared, node the
+	// actions read belong to, and first gene and number of actions of
+	// every information set
+	private int ante;
+	private Map<String, Node> nodes;
+	private Node current;
+	private Map<String, Integer> offsets;
+	private Map<String, Integer> actions;
+	private int chromoLength;
+
+	// Nodes on the path being built, and nodes built at least once
+	private Set<String> path;
+	private Set<String> reached;
+
+	/*
+	 * TreeParser constructor, for a description with the given name.
+	 */
+	private TreeParser(String s) {
+		source = s;
+		ante = ANTE;
+		nodes = new LinkedHashMap<String, Node>();
+		offsets = new HashMap<String, Integer>();
+		actions = new HashMap<String, Integer>();
+		path = new HashSet<String>();
+		reached = new HashSet<String>();
+	}
+
+	/*
+	 * Returns betting tree described in a file.
+	 */
+	public static GameTree parse(Path file) throws IOException {
+		return parse(file.toString(), Files.readAllLines(file, UTF8));
+	}
+
+	/*
+	 * Returns betting tree described in the given lines.
+	 */
+	public static GameTree parse(String source, List<String> lines) {
+		TreeParser parser = new TreeParser(source);
+		for (int l = 0; l < lines.size(); l++) {
+			parser.statement(lines.get(l), l + 1);
+		}
+		return parser.build();
+	}
+
+	/*
+	 * Reads a statement of the description.
+	 */
+	private void statement(String line, int l) {
+		int comment = line.indexOf('#');
+		if (comment != -1) {
+			line = line.substring(0, comment);
+		}
+		String[] words = line.trim().split("\\s+");
+		if (words[0].isEmpty()) {
+			return;
+		}
+
+		String keyword = words[0].toLowerCase();
+		if (keyword.equals("ante")) {
+			expect(words, 2, l);
+			ante = amount(words[1], 0, l);
+		} else if (keyword.equals("node")) {
+			expect(words, 4, l);
+			if (words[1].equals(SHOWDOWN)) {
+				throw error(l, "Node can not be named " + SHOWDOWN);
+			}
+			if (nodes.containsKey(words[1])) {
+				throw error(l, "Node " + words[1] + " declared twice");
+			}
+			current = new Node(words[1], player(words[2], l), words[3], l);
+			nodes.put(current.name, current);
+		} else if (current == null) {
+			throw error(l, "Action " + words[0] + " outside a node");
+		} else {
+			current.actions.add(action(keyword, words, l));
+		}
+	}
+
+	/*
+	 * Reads an action of the last node declared.
+	 */
+	private Action action(String keyword, String[] words, int l) {
+		if (keyword.equals("fold")) {
+			expect(words, 1, l);
+			return new Action(FOLD, 0, null, l);
+		}
+		if (keyword.equals("call")) {
+			if (words.length == 1) {
+				return new Action(CALL, 0, SHOWDOWN, l);
+			}
+			expect(words, 3, l);
+			return new Action(CALL, 0, target(words, 1, l), l);
+		}
+		if (keyword.equals("check")) {
+			expect(words, 3, l);
+			return new Action(CHECK, 0, target(words, 1, l), l);
+		}
+		if (keyword.equals("bet") || keyword.equals("raise")) {
+			expect(words, 4, l);
+			return new Action(BET, amount(words[1], 1, l), target(words, 2, l), l);
+		}
+		throw error(l, "Unknown statement " + words[0]);
+	}
+
+	/*
+	 * Returns node an action leads to, written after an arrow.
+	 */
+	private String target(String[] words, int w, int l) {
+		if (!words[w].equals("->")) {
+			throw error(l, "Expected -> before " + words[w]);
+		}
+		return words[w + 1];
+	}
+
+	/*
+	 * Returns player named by a word.
+	 */
+	private int player(String word, int l) {
+		if (word.equalsIgnoreCase("p1")) {
+			return GameTree.PLAYER_1;
+		}
+		if (word.equalsIgnoreCase("p2")) {
+			return GameTree.PLAYER_2;
+		}
+		throw error(l, "Unknown player " + word);
+	}
+
+	/*
+	 * Returns amount of money written in a word, which must be at least
+	 * the given minimum.
+	 */
+	private int amount(String word, int min, int l) {
+		int a;
+		try {
+			a = Integer.parseInt(word);
+		} catch (NumberFormatException e) {
+			throw error(l, "Expected an amount instead of " + word);
+		}
+		if (a < min) {
+			throw error(l, "Amount " + a + " is less than " + min);
+		}
+		return a;
+	}
+
+	/*
+	 * Checks the number of words of a statement.
+	 */
+	private void expect(String[] words, int n, int l) {
+		if (words.length != n) {
+			throw error(l, "Statement " + words[0] + " expects " + (n - 1) + " arguments");
+		}
+	}
+
+	/*
+	 * Lays out the genes of the information sets and builds the tree from
+	 * the first node.
+	 */
+	private GameTree build() {
+		if (nodes.isEmpty()) {
+			throw new IllegalArgumentException(source + ": No nodes declared");
+		}
+
+		// Information sets are laid out in the order they first appear
+		for (Node node : nodes.values()) {
+			int n = node.actions.size();
+			if (n < 2) {
+				throw error(node.line, "Node " + node.name + " has less than two actions");
+			}
+			Integer count = actions.get(node.infoSet);
+			if (count == null) {
+				offsets.put(node.infoSet, chromoLength);
+				actions.put(node.infoSet, n);
+				chromoLength += (n - 1) * GameTree.CARDS;
+			} else if (count != n) {
+				throw error(node.line, "Information set " + node.infoSet + " used with " + count + " and " + n + " actions");
+			}
+		}
+
+		GameTree.Builder b = new GameTree.Builder(chromoLength);
+		Node root = nodes.values().iterator().next();
+		int r = buildNode(b, root, ante, ante);
+		for (Node node : nodes.values()) {
+			if (!reached.contains(node.name)) {
+				throw error(node.line, "Node " + node.name + " is never reached");
+			}
+		}
+		return b.build(r);
+	}
+
+	/*
+	 * Builds a node reached with the given amounts in the pot, as a chain
+	 * of decisions between taking an action and going on to the next.
+	 */
+	private int buildNode(GameTree.Builder b, Node node, int c1, int c2) {
+		if (!path.add(node.name)) {
+			throw error(node.line, "Node " + node.name + " is reached from itself");
+		}
+		reached.add(node.name);
+
+		int n = node.actions.size();
+		int[] children = new int[n];
+		for (int a = 0; a < n; a++) {
+			children[a] = buildAction(b, node, node.actions.get(a), c1, c2);
+		}
+		int offset = offsets.get(node.infoSet);
+		int decision = children[n - 1];
+		for (int a = n - 2; a >= 0; a--) {
+			decision = b.decision(node.player, offset + a * GameTree.CARDS, decision, children[a]);
+		}
+
+		path.remove(node.name);
+		return decision;
+	}
+
+	/*
+	 * Builds the subtree following an action taken with the given amounts
+	 * in the pot.
+	 */
+	private int buildAction(GameTree.Builder b, Node node, Action action, int c1, int c2) {
+		int[] c = { c1, c2 };
+		int p = node.player;
+		int opponent = 1 - p;
+		switch (action.kind) {
+		case FOLD:
+			return b.fold(opponent, c1, c2);
+		case CALL:
+			c[p] = c[opponent];
+			break;
+		case CHECK:
+			if (c[p] < c[opponent]) {
+				throw error(action.line, "Can not check facing a bet in node " + node.name);
+			}
+			break;
+		default:
+			c[p] += action.amount;
+			if (c[p] <= c[opponent]) {
+				throw error(action.line, "Bet of " + action.amount + " does not raise in node " + node.name);
+			}
+		}
+
+		if (action.target.equals(SHOWDOWN)) {
+			return b.showdown(c[0], c[1]);
+		}
+		Node next = nodes.get(action.target);
+		if (next == null) {
+			throw error(action.line, "Unknown node " + action.target);
+		}
+		return buildNode(b, next, c[0], c[1]);
+	}
+
+	/*
+	 * Returns exception for an error in a line of the description.
+	 */
+	private IllegalArgumentException error(int l, String message) {
+		return new IllegalArgumentException(source + ":" + l + ": " + message);
+	}
+
+	/*
+	 * Decision node of the description.
+	 */
+	private static class Node {
+
+		private String name;
+		private int player;
+		private String infoSet;
+		private int line;
+		private List<Action> actions;
+
+		Node(String n, int p, String i, int l) {
+			name = n;
+			player = p;
+			infoSet = i;
+			line = l;
+			actions = new ArrayList<Action>();
+		}
+	}
+
+	/*
+	 * Action of a node, with the amount bet and the node it leads to.
+	 */
+	private static class Action {
+
+		private int kind;
+		private int amount;
+		private String target;
+		private int line;
+
+		Action(int k, int a, String t, int l) {
+			kind = k;
+			amount = a;
+			target = t;
+			line = l;
+		}
+	}
+}
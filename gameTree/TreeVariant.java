@@ -0,0 +1,74 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> TreeVariant.java
+*
+* <dt> Description:
+* <dd> Variant of Kuhn Poker defined by a description of its betting tree,
+* read by TreeParser, instead of by a class of its own. The length of
+* its chromosomes is found from the information sets of the tree, and
+* its hands are played on the tree by HandSimulator and evaluated
+* exactly by ExactEvaluator, as for the other variants. A variant read
+* from a file is named by the path of the file, so worker processes and
+* resumed runs can read it again.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package gameTree;
+
+import geneticAlgo.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class TreeVariant implements GameVariant {
+
+	// Name of the variant and its betting tree
+	private String name;
+	private GameTree tree;
+
+	/*
+	 * TreeVariant constructor, with the given name and betting tree.
+	 */
+	public TreeVariant(String n, GameTree t) {
+		name = n;
+		tree = t;
+	}
+
+	/*
+	 * Returns variant described in a file, named by its path.
+	 */
+	public static TreeVariant load(Path file) throws IOException {
+		return new TreeVariant(file.toString(), TreeParser.parse(file));
+	}
+
+	/*
+	 * Methods of the GameVariant interface, played on the betting tree
+	 * of the variant.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public int getChromoLength() {
+		return tree.getChromoLength();
+	}
+
+	public GameTree getTree() {
+		return tree;
+	}
+
+	public int playHand(Chromosome ch1, Chromosome ch2, Random rand) {
+		return HandSimulator.gamePlay(tree, ch1, ch2, rand);
+	}
+
+	public void playGames(Chromosome ch1, Chromosome ch2, int games, Random rand, HandAccumulator acc) {
+		HandSimulator.playGames(tree, ch1, ch2, games, rand, acc);
+	}
+
+	public double[] expectedPlay(Chromosome ch1, Chromosome ch2) {
+		return ExactEvaluator.expectedPlay(tree, ch1, ch2);
+	}
+}
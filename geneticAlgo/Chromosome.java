@@ -12,17 +12,21 @@
 package geneticAlgo;
 import java.util.Random;
 import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Chromosome implements Comparable<Chromosome> {
 
 	// Fitness rate for chromosome, array holding genes
-	// (which are random doubles between 0 and 1) and length
+	// (which are random doubles between 0 and 1) from the given offset
+	// and length
 	private double fitness;
 	private double[] genes;
-	private static int length;
-	
-	// Random variable
-	private static Random rand = new Random();
+	private int offset;
+	private int length;
+
+	// Games the fitness was found with, set to 0 (dirty) whenever a gene
+	// changes, so unchanged chromosomes keep it through breeding
+	private long samples;
 
 	/*
 	 * Chromosome constructor
@@ -31,6 +35,7 @@ public class Chromosome implements Comparable<Chromosome> {
 		length = l;
 		fitness = 0;
 		genes = new double[length];
+		offset = 0;
 	}
 
 	/*
@@ -38,34 +43,68 @@ public class Chromosome implements Comparable<Chromosome> {
 	 */
 	public Chromosome(Chromosome clone) {
 		this.length = clone.getLength();
-		this.fitness = clone.fitness;
+		this.fitness = clone.getFitness();
+		this.samples = clone.getSamples();
 		genes = new double[length];
-		for (int i = 0; i < length; i++) {
-			this.setGene(i, clone.getGene(i));
-		}
+		offset = 0;
+		System.arraycopy(clone.genes, clone.offset, genes, 0, length);
+	}
+
+	/*
+	 * Constructor for a chromosome whose genes are held in a shared array
+	 * from the given offset, such as a row of a PackedPopulation.
+	 */
+	protected Chromosome(double[] store, int off, int l) {
+		length = l;
+		fitness = 0;
+		genes = store;
+		offset = off;
+	}
+
+	/*
+	 * Method that copies genes, fitness and games behind it of another
+	 * chromosome.
+	 */
+	public void copyFrom(Chromosome other) {
+		System.arraycopy(other.genes, other.offset, genes, offset, length);
+		setFitness(other.getFitness());
+		setSamples(other.getSamples());
 	}
 
 	/*
 	 * Method that randomizes gene values in chromosome.
 	 */
 	public void randomize() {
+		randomize(ThreadLocalRandom.current());
+	}
+
+	/*
+	 * Method that randomizes gene values in chromosome, drawing them from
+	 * the given random generator.
+	 */
+	public void randomize(Random rand) {
 		for (int i=0; i<length; i++) {
-			genes[i] = (double) rand.nextDouble();
+			genes[offset + i] = (double) rand.nextDouble();
 		}
+		setSamples(0);
 	}
 
 	/*
 	 * Getter method for gene value
 	 */
 	public double getGene(int ind) {
-		return genes[ind];
+		return genes[offset + ind];
 	}
 	
 	/*
-	 * Setter method for gene value
+	 * Setter method for gene value, marking the chromosome as dirty when
+	 * the value changes
 	 */
 	public void setGene(int ind, double value) {
-		genes[ind] = value;
+		if (Double.doubleToLongBits(genes[offset + ind]) != Double.doubleToLongBits(value)) {
+			genes[offset + ind] = value;
+			setSamples(0);
+		}
 	}
   
 	/*
@@ -89,6 +128,38 @@ public class Chromosome implements Comparable<Chromosome> {
 		fitness = f;
 	}
 
+	/*
+	 * Setter method for fitness value found with the given number of
+	 * games (1 for an exact evaluation)
+	 */
+	public void setFitness(double f, long games) {
+		setFitness(f);
+		setSamples(games);
+	}
+
+	/*
+	 * Getter method for games the fitness was found with (0 if genes have
+	 * changed since it was set)
+	 */
+	public long getSamples() {
+		return samples;
+	}
+
+	/*
+	 * Setter method for games the fitness was found with
+	 */
+	public void setSamples(long games) {
+		samples = games;
+	}
+
+	/*
+	 * Returns true if genes have changed since the fitness was set by an
+	 * evaluation.
+	 */
+	public boolean isDirty() {
+		return getSamples() == 0;
+	}
+
 	/*
 	 * Method to reset fitness value to zero
 	 */
@@ -101,16 +172,49 @@ public class Chromosome implements Comparable<Chromosome> {
 	 * has the same gene values.
 	 */
 	public boolean sameGenes(Chromosome compareChromo) {
-		return (Arrays.equals(this.genes, compareChromo.genes));
+		if (length != compareChromo.length) {
+			return false;
+		}
+		// Compare bits of genes, as Arrays.equals does
+		for (int i = 0; i < length; i++) {
+			if (Double.doubleToLongBits(genes[offset + i]) != Double.doubleToLongBits(compareChromo.genes[compareChromo.offset + i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Method that returns a 64 bit hash of the gene values, consistent
+	 * with sameGenes (chromosomes with the same genes have the same hash).
+	 */
+	public long geneHash() {
+		long h = length;
+		for (int i = 0; i < length; i++) {
+			h += Double.doubleToLongBits(genes[offset + i]);
+			h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+			h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+			h = h ^ (h >>> 31);
+		}
+		return h;
 	}
 
 	/*
 	 * Method that returns offspring produced from One-Point crossover of the 
 	 * two chromosomes passed to it.
 	 */
-	public static Chromosome[] onePointCrossover(Chromosome ch1, Chromosome ch2) {	
+	public static Chromosome[] onePointCrossover(Chromosome ch1, Chromosome ch2) {
+		return onePointCrossover(ch1, ch2, ThreadLocalRandom.current());
+	}
+
+	/*
+	 * Method that returns offspring produced from One-Point crossover of the 
+	 * two chromosomes passed to it, using the given random generator.
+	 */
+	public static Chromosome[] onePointCrossover(Chromosome ch1, Chromosome ch2, Random rand) {
 		// Random number between 1 and length (both included, not 0 because it
 		// would result in no crossover)
+		int length = ch1.getLength();
 		int ind = rand.nextInt(length-1) + 1;
 		
 		// Create a two chromosome array to hold the children produced
@@ -132,6 +236,14 @@ public class Chromosome implements Comparable<Chromosome> {
 	 * two chromosomes passed to it.
 	 */
 	public static Chromosome[] uniformCrossover(Chromosome ch1, Chromosome ch2) {
+		return uniformCrossover(ch1, ch2, ThreadLocalRandom.current());
+	}
+
+	/*
+	 * Method that returns offspring produced from Uniform crossover of the 
+	 * two chromosomes passed to it, using the given random generator.
+	 */
+	public static Chromosome[] uniformCrossover(Chromosome ch1, Chromosome ch2, Random rand) {
 		// Variable that determines similarity to each parent
 		double n = rand.nextDouble();
 		n = 0.5;
@@ -141,6 +253,7 @@ public class Chromosome implements Comparable<Chromosome> {
 		newChromo[0] = new Chromosome(ch1);
 		newChromo[1] = new Chromosome(ch2);
 		
+		int length = ch1.getLength();
 		for (int i = 0; i < length; i++) {
 			double r = rand.nextDouble();
 			if (r < n) {
@@ -152,16 +265,69 @@ public class Chromosome implements Comparable<Chromosome> {
 		return newChromo;
 	}
 
+	/*
+	 * Method that turns the two chromosomes passed to it into the offspring
+	 * of their One-Point crossover, drawing the same numbers from the
+	 * random generator as onePointCrossover.
+	 */
+	public static void onePointCrossoverInPlace(Chromosome ch1, Chromosome ch2, Random rand) {
+		int length = ch1.getLength();
+		int ind = rand.nextInt(length-1) + 1;
+		for (int i = ind; i < length; i++) {
+			double gene = ch1.getGene(i);
+			ch1.setGene(i, ch2.getGene(i));
+			ch2.setGene(i, gene);
+		}
+	}
+
+	/*
+	 * Method that turns the two chromosomes passed to it into the offspring
+	 * of their Uniform crossover, drawing the same numbers from the random
+	 * generator as uniformCrossover.
+	 */
+	public static void uniformCrossoverInPlace(Chromosome ch1, Chromosome ch2, Random rand) {
+		// Variable that determines similarity to each parent
+		double n = rand.nextDouble();
+		n = 0.5;
+
+		int length = ch1.getLength();
+		for (int i = 0; i < length; i++) {
+			double r = rand.nextDouble();
+			if (r < n) {
+				double gene = ch1.getGene(i);
+				ch1.setGene(i, ch2.getGene(i));
+				ch2.setGene(i, gene);
+			}
+		}
+	}
+
 	/*
 	 * Method that returns mutation of chromosome.
 	 */
 	public Chromosome mutate() {
+		return mutate(ThreadLocalRandom.current());
+	}
+
+	/*
+	 * Method that returns mutation of chromosome, using the given random
+	 * generator.
+	 */
+	public Chromosome mutate(Random rand) {
 		int ind = rand.nextInt(length);
 		Chromosome mutatedChromo = new Chromosome(this);
 		mutatedChromo.setGene(ind, rand.nextDouble());
 		return mutatedChromo;
 	}
 
+	/*
+	 * Method that mutates a random gene of chromosome, drawing the same
+	 * numbers from the random generator as mutate.
+	 */
+	public void mutateInPlace(Random rand) {
+		int ind = rand.nextInt(length);
+		setGene(ind, rand.nextDouble());
+	}
+
 	/*
 	 * Method that returns String with gene values of chromosome.
 	 */	
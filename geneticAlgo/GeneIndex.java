@@ -0,0 +1,108 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> GeneIndex.java
+*
+* <dt> Description:
+* <dd> Class that indexes the chromosomes of a population by the hash of
+* their genes, so finding whether a population already holds a copy of
+* a chromosome does not require comparing it with every member. Buckets
+* are doubly linked chains of population indices kept in int arrays,
+* so adding and removing a chromosome takes constant time however many
+* chromosomes share its bucket, and does not allocate any object.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package geneticAlgo;
+
+import java.util.Arrays;
+
+class GeneIndex {
+
+	// First population index of every bucket (-1 when empty)
+	private int[] heads;
+
+	// Next and previous population index in the same bucket (-1 at the
+	// ends of the chain), and hash of the genes of every indexed
+	// chromosome
+	private int[] next;
+	private int[] prev;
+	private long[] hashes;
+	private boolean[] indexed;
+
+	/*
+	 * Index constructor for a population of given size.
+	 */
+	GeneIndex(int size) {
+		heads = new int[Math.max(Integer.highestOneBit(Math.max(size, 1)) * 4, 16)];
+		next = new int[size];
+		prev = new int[size];
+		hashes = new long[size];
+		indexed = new boolean[size];
+		clear();
+	}
+
+	/*
+	 * Removes all chromosomes from index.
+	 */
+	void clear() {
+		Arrays.fill(heads, -1);
+		Arrays.fill(indexed, false);
+	}
+
+	/*
+	 * Adds chromosome held in given position of population.
+	 */
+	void add(int ind, Chromosome ch) {
+		long h = ch.geneHash();
+		int b = bucket(h);
+		hashes[ind] = h;
+		next[ind] = heads[b];
+		prev[ind] = -1;
+		if (heads[b] != -1) {
+			prev[heads[b]] = ind;
+		}
+		heads[b] = ind;
+		indexed[ind] = true;
+	}
+
+	/*
+	 * Removes chromosome held in given position of population.
+	 */
+	void remove(int ind) {
+		if (!indexed[ind]) {
+			return;
+		}
+		if (prev[ind] == -1) {
+			heads[bucket(hashes[ind])] = next[ind];
+		} else {
+			next[prev[ind]] = next[ind];
+		}
+		if (next[ind] != -1) {
+			prev[next[ind]] = prev[ind];
+		}
+		indexed[ind] = false;
+	}
+
+	/*
+	 * Returns true if a chromosome with the same genes is held in a
+	 * position below topLimit.
+	 */
+	boolean contains(Chromosome ch, Chromosome[] chromos, int topLimit) {
+		long h = ch.geneHash();
+		for (int i = heads[bucket(h)]; i != -1; i = next[i]) {
+			if (i < topLimit && hashes[i] == h && ch.sameGenes(chromos[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Returns bucket of a hash.
+	 */
+	private int bucket(long h) {
+		return (int) (h >>> 32) & (heads.length - 1);
+	}
+}
@@ -0,0 +1,198 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> PackedPopulation.java
+*
+* <dt> Description:
+* <dd> Population whose genes are stored in one contiguous array, row by
+*      row, with the fitness of every chromosome and the games it was
+*      found with in parallel arrays.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+
+package geneticAlgo;
+
+import java.util.Arrays;
+
+public class PackedPopulation extends Population {
+
+	// Genes of chromosome i are held in genes[i*chromoLength] to
+	// genes[(i+1)*chromoLength - 1], its fitness in fitness[i] and the
+	// games behind it in samples[i]
+	private double[] genes;
+	private double[] fitness;
+	private long[] samples;
+	private Row[] rows;
+
+	// Buffers the rows are sorted into, allocated on the first sort
+	private double[] sortedGenes;
+	private double[] sortedFitness;
+	private long[] sortedSamples;
+
+	/*
+	 * PackedPopulation constructor
+	 */
+	public PackedPopulation(int s, int cL, double c, double m) {
+		super(s, cL, c, m);
+		genes = new double[s * cL];
+		fitness = new double[s];
+		samples = new long[s];
+		rows = new Row[s];
+		for (int i = 0; i < s; i++) {
+			rows[i] = new Row(i);
+			super.setChromo(i, rows[i]);
+		}
+
+		// Rows hold no chromosome yet, so they are only indexed once the
+		// population is first searched
+		invalidate();
+	}
+
+	/*
+	 * Constructor that packs the chromosomes of another population.
+	 */
+	public PackedPopulation(Population clone) {
+		this(clone.getSize(), clone.getChromoLength(), clone.getCrossRate(), clone.getMutateRate());
+		for (int i = 0; i < clone.getSize(); i++) {
+			setChromo(i, clone.getChromo(i));
+		}
+		setRandom(clone.getRandom());
+	}
+
+	/*
+	 * Getter method for the gene matrix, in which chromosome i starts at
+	 * getOffset(i). Genes changed through it are not reindexed, so they
+	 * must not be changed while the population is searched with contains.
+	 */
+	public double[] getGeneData() {
+		return genes;
+	}
+
+	/*
+	 * Getter method for the fitness of every chromosome, by position.
+	 */
+	public double[] getFitnessData() {
+		return fitness;
+	}
+
+	/*
+	 * Getter method for the games behind the fitness of every chromosome,
+	 * by position.
+	 */
+	public long[] getSampleData() {
+		return samples;
+	}
+
+	/*
+	 * Replaces every gene and fitness of population with the given ones,
+	 * laid out as in getGeneData and getFitnessData. Chromosomes are
+	 * marked as dirty, as the games behind their fitness are not known.
+	 */
+	public void load(double[] geneData, double[] fitnessData) {
+		Arrays.fill(samples, 0);
+		load(geneData, fitnessData, samples);
+	}
+
+	/*
+	 * Replaces every gene, fitness and number of games behind it with the
+	 * given ones, laid out as in getGeneData, getFitnessData and
+	 * getSampleData.
+	 */
+	public void load(double[] geneData, double[] fitnessData, long[] sampleData) {
+		System.arraycopy(geneData, 0, genes, 0, genes.length);
+		System.arraycopy(fitnessData, 0, fitness, 0, fitness.length);
+		System.arraycopy(sampleData, 0, samples, 0, samples.length);
+		invalidate();
+	}
+
+	/*
+	 * Returns position of first gene of specified chromosome within the
+	 * gene matrix.
+	 */
+	public int getOffset(int ind) {
+		return ind * getChromoLength();
+	}
+
+	/*
+	 * Set chromosome in population, copying its genes and fitness into the
+	 * row of the given position. The chromosome returned by getChromo for
+	 * that position keeps being a view of the row.
+	 */
+	@Override
+	public void setChromo(int ind, Chromosome ch) {
+		if (ch != rows[ind]) {
+			rows[ind].copyFrom(ch);
+		}
+		super.setChromo(ind, rows[ind]);
+	}
+
+	/*
+	 * Sort population, moving the rows so chromosome i is still stored in
+	 * row i of the gene matrix.
+	 */
+	@Override
+	public void sort() {
+		super.sort();
+
+		int size = getSize();
+		int length = getChromoLength();
+		if (sortedGenes == null) {
+			sortedGenes = new double[genes.length];
+			sortedFitness = new double[size];
+			sortedSamples = new long[size];
+		}
+		for (int i = 0; i < size; i++) {
+			Row row = (Row) getChromo(i);
+			System.arraycopy(genes, row.slot * length, sortedGenes, i * length, length);
+			sortedFitness[i] = fitness[row.slot];
+			sortedSamples[i] = samples[row.slot];
+		}
+		System.arraycopy(sortedGenes, 0, genes, 0, genes.length);
+		System.arraycopy(sortedFitness, 0, fitness, 0, size);
+		System.arraycopy(sortedSamples, 0, samples, 0, size);
+		for (int i = 0; i < size; i++) {
+			super.setChromo(i, rows[i]);
+		}
+	}
+
+	/*
+	 * Chromosome that reads and writes a row of the gene matrix and its
+	 * entries in the fitness and samples arrays.
+	 */
+	private class Row extends Chromosome {
+
+		private final int slot;
+
+		Row(int s) {
+			super(genes, s * getChromoLength(), getChromoLength());
+			slot = s;
+		}
+
+		@Override
+		public double getFitness() {
+			return fitness[slot];
+		}
+
+		@Override
+		public void setFitness(double f) {
+			fitness[slot] = f;
+		}
+
+		@Override
+		public void resetFitness() {
+			fitness[slot] = 0;
+		}
+
+		@Override
+		public long getSamples() {
+			return samples[slot];
+		}
+
+		@Override
+		public void setSamples(long games) {
+			samples[slot] = games;
+		}
+	}
+}
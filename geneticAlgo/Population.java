@@ -23,9 +23,25 @@ public class Population {
 	private double fitness;
 	private int chromoLength;
 	
+	// Random generator used to create, select and breed chromosomes
+	private Random rand;
+	
+	// Index of chromosomes by genes, rebuilt when chromosomes are
+	// changed or moved without setChromo
+	private GeneIndex index;
+	private boolean indexValid;
+	
+	// Cumulative weights for Roulette-Wheel and Rank selection, built
+	// once per generation (null until the first selection)
+	private SelectionTable selection;
+	
+	// Summary of the chromosomes, set by the evaluator that last set their
+	// fitness or computed when first asked for (null until then)
+	private PopulationStats stats;
+	
 	// Rates for population
-	private static double crossRate;
-	private static double mutateRate;
+	private double crossRate;
+	private double mutateRate;
 
 	/*
 	* Population constructor
@@ -36,6 +52,9 @@ public class Population {
 		crossRate = c;
 		mutateRate = m;
 		chromos = new Chromosome[size];
+		rand = new RandomStream();
+		index = new GeneIndex(size);
+		indexValid = true;
 	}
 
 	/*
@@ -43,14 +62,33 @@ public class Population {
 	 */
 	public Population(Population clone) {
 		this.size = clone.size;
+		this.chromoLength = clone.chromoLength;
 		this.chromos = clone.chromos;
 		this.chromos = new Chromosome[size];
+		this.index = new GeneIndex(size);
+		this.indexValid = true;
 		for (int i = 0; i < size; i++) {
 			this.setChromo(i, new Chromosome(clone.getChromo(i)));
 		}
 		this.fitness = clone.fitness;
 		this.crossRate = clone.crossRate;
 		this.mutateRate = clone.mutateRate;
+		this.rand = clone.rand;
+	}
+
+	/*
+	 * Getter method for random generator of population.
+	 */
+	public Random getRandom() {
+		return rand;
+	}
+
+	/*
+	 * Setter method for random generator of population, such as a stream
+	 * derived from the seed of the run to make it reproducible.
+	 */
+	public void setRandom(Random r) {
+		rand = r;
 	}
 
 	/*
@@ -59,11 +97,11 @@ public class Population {
 	public void randomize() {
 		for (int i = 0 ; i < size; i++) {
 			Chromosome randomChromo = new Chromosome(chromoLength);
-			randomChromo.randomize();
+			randomChromo.randomize(rand);
 			while (this.contains(randomChromo, i)) {
-				randomChromo.randomize();
+				randomChromo.randomize(rand);
 			}
-			chromos[i] = new Chromosome(randomChromo);
+			setChromo(i, new Chromosome(randomChromo));
 		}
 	}
 	
@@ -77,26 +115,49 @@ public class Population {
 			values.add(i);
 		}
 		for (int i = 0; i < size; i++) {
-			chromos[i] = new Chromosome(chromoLength);
+			setChromo(i, new Chromosome(chromoLength));
 		}
 		for (int i = 0 ; i < chromoLength; i++) {
-			Collections.shuffle(values);
+			Collections.shuffle(values, rand);
 			for (int j=0; j < size; j++) {
-				chromos[j].setGene(i, (double) (values.get(j)%101)/100);
+				getChromo(j).setGene(i, (double) (values.get(j)%101)/100);
 			}
 		}
+		indexValid = false;
 	}
 
 	/*
-	 * Returns true if population contains given chromosome.
+	 * Returns true if population contains given chromosome in a position
+	 * below topLimit.
 	 */
 	public boolean contains(Chromosome chromo, int topLimit) {
-		for (int i=0; i<topLimit; i++) {
-			if (chromo.sameGenes(chromos[i])) {
-				return true;
+		if (!indexValid) {
+			rebuildIndex();
+		}
+		return index.contains(chromo, chromos, topLimit);
+	}
+
+	/*
+	 * Marks chromosomes as changed without setChromo, so the index and the
+	 * selection table are built again when needed.
+	 */
+	void invalidate() {
+		indexValid = false;
+		selection = null;
+		stats = null;
+	}
+
+	/*
+	 * Indexes again all chromosomes in population.
+	 */
+	private void rebuildIndex() {
+		index.clear();
+		for (int i = 0; i < size; i++) {
+			if (chromos[i] != null) {
+				index.add(i, chromos[i]);
 			}
 		}
-		return false;
+		indexValid = true;
 	}
 
 	/*
@@ -118,42 +179,70 @@ public class Population {
 	}
  
 	/*
-	 * Select and return chromosome using Roulette-Wheel selection.
+	 * Builds the selection table from the current fitness of the
+	 * chromosomes. It is built by the first selection after chromosomes
+	 * are changed, so this must be called again if their fitness is
+	 * evaluated after selecting from the population.
+	 */
+	public void prepareSelection() {
+		selection = new SelectionTable(chromos, size);
+	}
+
+	/*
+	 * Returns diversity of population, the standard deviation of every
+	 * gene across chromosomes averaged over all genes.
+	 */
+	public double geneDiversity() {
+		return getStats().getDiversity();
+	}
+
+	/*
+	 * Returns summary of the chromosomes and their fitness. It is kept
+	 * until chromosomes are changed or moved, so fitness set without an
+	 * evaluator must be followed by setStats.
+	 */
+	public PopulationStats getStats() {
+		if (stats == null) {
+			stats = PopulationStats.of(this);
+		}
+		return stats;
+	}
+
+	/*
+	 * Setter method for summary of the chromosomes, gathered by an
+	 * evaluator while setting their fitness (null to compute it again).
+	 */
+	public void setStats(PopulationStats s) {
+		stats = s;
+	}
+
+	/*
+	 * Select and return chromosome using Roulette-Wheel selection. As
+	 * fitness can be negative, chromosomes are weighted by how much their
+	 * fitness exceeds the one of the least fit chromosome.
 	 */
 	public Chromosome selectRouletteWheel() {
-		evalTotalFitness();
-		Random rand = new Random();
-		double randFitness = rand.nextDouble() * (fitness);
-		int i;
-		for (i = 0; (randFitness > 0) && (i < size); i++) {
-			randFitness -= (chromos[i].getFitness());
+		if (selection == null) {
+			prepareSelection();
 		}
-		return chromos[i-1];
+		return selection.selectRouletteWheel(rand);
 	}
 
 	/*
-	 * Select and return chromosome using Rank selection.
+	 * Select and return chromosome using Rank selection, in which the
+	 * fittest chromosome has weight size and the least fit weight 1.
 	 */
 	public Chromosome selectRankWheel() {
-		int rankTotal = 0;
-		for (int i = 0; i < size; i++) {
-			rankTotal += i;
-		}
-		this.sort();
-		Random rand = new Random();
-		double randRank = rand.nextDouble() * rankTotal;
-		int i;
-		for (i = 0; (randRank > 0) && (i < size); i++) {
-			randRank -= i;
+		if (selection == null) {
+			prepareSelection();
 		}
-		return chromos[size-(i-1)];
+		return selection.selectRankWheel(rand);
 	}
 
 	/*
 	 * Select and return chromosome using Tournament selection.
 	 */
 	public Chromosome selectTournament(int tourSize) {
-		Random rand = new Random();
 		double bestFitness = -1;
 		int bestInd = 0;
 		for (int i = 0; i < tourSize; i++) {
@@ -184,6 +273,37 @@ public class Population {
 	 */
 	public void sort() {
 		Arrays.sort(chromos);
+		indexValid = false;
+		selection = null;
+		stats = null;
+	}
+
+	/*
+	 * Getter method for population size.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/*
+	 * Getter method for length of chromosomes in population.
+	 */
+	public int getChromoLength() {
+		return chromoLength;
+	}
+
+	/*
+	 * Getter method for crossover rate of population.
+	 */
+	public double getCrossRate() {
+		return crossRate;
+	}
+
+	/*
+	 * Getter method for mutation rate of population.
+	 */
+	public double getMutateRate() {
+		return mutateRate;
 	}
 
 	/*
@@ -194,50 +314,111 @@ public class Population {
 	}
 
 	/*
-	 * Set chromosome in population.
+	 * Set chromosome in population. Genes of the chromosome must not be
+	 * changed afterwards, as it is indexed by them.
 	 */
 	public void setChromo(int ind, Chromosome ch) {
+		if (indexValid) {
+			index.remove(ind);
+			index.add(ind, ch);
+		}
 		chromos[ind] = ch;
+		selection = null;
+		stats = null;
 	}
 
 	/*
 	 * Returns mutated copy of chromosome (subject to mutation rate)
 	 */
-	public static Chromosome mutate(Chromosome ch) {
-		Random rand = new Random();
+	public Chromosome mutate(Chromosome ch) {
+		return mutate(ch, rand);
+	}
+
+	/*
+	 * Returns mutated copy of chromosome (subject to mutation rate), using
+	 * the given random generator.
+	 */
+	public Chromosome mutate(Chromosome ch, Random rand) {
 		double prob = rand.nextDouble();
 		if ( prob < mutateRate ) {
-			return ch.mutate();
+			return ch.mutate(rand);
 		} else {
 			return ch;
 		}
 	}
 
+	/*
+	 * Mutates chromosome in place (subject to mutation rate), using the
+	 * given random generator.
+	 */
+	public void mutateInPlace(Chromosome ch, Random rand) {
+		double prob = rand.nextDouble();
+		if ( prob < mutateRate ) {
+			ch.mutateInPlace(rand);
+		}
+	}
+
 	/*
 	 * Method that returns offspring produced from Uniform crossover,
 	 * subject to the crossover rate
 	 */
-	public static Chromosome[] uniformCrossover(Chromosome[] ch) {
-		Random rand = new Random();
+	public Chromosome[] uniformCrossover(Chromosome[] ch) {
+		return uniformCrossover(ch, rand);
+	}
+
+	/*
+	 * Method that returns offspring produced from Uniform crossover,
+	 * subject to the crossover rate, using the given random generator.
+	 */
+	public Chromosome[] uniformCrossover(Chromosome[] ch, Random rand) {
 		double prob = rand.nextDouble();
 		if (prob < crossRate) {
-			return Chromosome.uniformCrossover(ch[0], ch[1]);
+			return Chromosome.uniformCrossover(ch[0], ch[1], rand);
 		} else {
 			return ch;
 		}
 	}
 	
+	/*
+	 * Turns two chromosomes into the offspring of their Uniform crossover
+	 * (subject to the crossover rate), using the given random generator.
+	 */
+	public void uniformCrossoverInPlace(Chromosome[] ch, Random rand) {
+		double prob = rand.nextDouble();
+		if (prob < crossRate) {
+			Chromosome.uniformCrossoverInPlace(ch[0], ch[1], rand);
+		}
+	}
+
 	/*
 	 * Method that returns offspring produced from One-Point crossover,
 	 * subject to the crossover rate
 	 */
-	public static Chromosome[] onePointCrossover(Chromosome[] ch) {
-		Random rand = new Random();
+	public Chromosome[] onePointCrossover(Chromosome[] ch) {
+		return onePointCrossover(ch, rand);
+	}
+
+	/*
+	 * Method that returns offspring produced from One-Point crossover,
+	 * subject to the crossover rate, using the given random generator.
+	 */
+	public Chromosome[] onePointCrossover(Chromosome[] ch, Random rand) {
 		double prob = rand.nextDouble();
 		if (prob < crossRate) {
-			return Chromosome.onePointCrossover(ch[0], ch[1]);
+			return Chromosome.onePointCrossover(ch[0], ch[1], rand);
 		} else {
 			return ch;
 		}
 	}
-}
+
+	/*
+	 * Turns two chromosomes into the offspring of their One-Point crossover
+	 * (subject to the crossover rate), using the given random generator.
+	 */
+	public void onePointCrossoverInPlace(Chromosome[] ch, Random rand) {
+		double prob = rand.nextDouble();
+		if (prob < crossRate) {
+			Chromosome.onePointCrossoverInPlace(ch[0], ch[1], rand);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> PopulationStats.java
+*
+* <dt> Description:
+* <dd> Class that summarises a population in a single pass over its
+* chromosomes: fittest and least fit chromosomes, mean, variance and
+* quantiles of fitness, and mean and variance of every gene. Evaluators
+* add every chromosome as they set its fitness, so reporting on a
+* generation does not scan the population again.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package geneticAlgo;
+
+import java.util.Arrays;
+
+public class PopulationStats {
+
+	// Chromosomes added, and fitness of every one of them (sorted when a
+	// quantile is first asked for)
+	private int count;
+	private double[] values;
+	private boolean sorted;
+
+	// Fittest and least fit chromosomes, by position in population
+	private double best;
+	private int bestIndex;
+	private double worst;
+	private int worstIndex;
+
+	// Sum of fitness, and running mean and sum of squared deviations of
+	// fitness (Welford's method)
+	private double sum;
+	private double mean;
+	private double m2;
+
+	// Running mean and sum of squared deviations of every gene
+	private double[] geneMean;
+	private double[] geneM2;
+
+	/*
+	 * PopulationStats constructor for a population of given size and
+	 * chromosome length.
+	 */
+	public PopulationStats(int size, int chromoLength) {
+		values = new double[size];
+		geneMean = new double[chromoLength];
+		geneM2 = new double[chromoLength];
+		best = Double.NEGATIVE_INFINITY;
+		worst = Double.POSITIVE_INFINITY;
+	}
+
+	/*
+	 * Returns statistics of a population, in one pass over it.
+	 */
+	public static PopulationStats of(Population pop) {
+		PopulationStats stats = new PopulationStats(pop.getSize(), pop.getChromoLength());
+		for (int i = 0; i < pop.getSize(); i++) {
+			stats.add(i, pop.getChromo(i));
+		}
+		return stats;
+	}
+
+	/*
+	 * Adds chromosome held in the given position of population, once its
+	 * fitness is set.
+	 */
+	public void add(int ind, Chromosome ch) {
+		double f = ch.getFitness();
+		if (count == values.length) {
+			values = Arrays.copyOf(values, Math.max(2 * count, 1));
+		}
+		values[count] = f;
+		sorted = false;
+		count++;
+
+		// First chromosome with highest or lowest fitness is kept
+		if (f > best) {
+			best = f;
+			bestIndex = ind;
+		}
+		if (f < worst) {
+			worst = f;
+			worstIndex = ind;
+		}
+
+		sum += f;
+		double delta = f - mean;
+		mean += delta / count;
+		m2 += delta * (f - mean);
+
+		for (int g = 0; g < geneMean.length; g++) {
+			double gene = ch.getGene(g);
+			double d = gene - geneMean[g];
+			geneMean[g] += d / count;
+			geneM2[g] += d * (gene - geneMean[g]);
+		}
+	}
+
+	/*
+	 * Getter method for number of chromosomes added.
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/*
+	 * Getter method for highest fitness.
+	 */
+	public double getBest() {
+		return best;
+	}
+
+	/*
+	 * Getter method for position of fittest chromosome.
+	 */
+	public int getBestIndex() {
+		return bestIndex;
+	}
+
+	/*
+	 * Getter method for lowest fitness.
+	 */
+	public double getWorst() {
+		return worst;
+	}
+
+	/*
+	 * Getter method for position of least fit chromosome.
+	 */
+	public int getWorstIndex() {
+		return worstIndex;
+	}
+
+	/*
+	 * Returns average fitness, summed in the order chromosomes were added
+	 * as avgFitness does.
+	 */
+	public double getMean() {
+		return sum / count;
+	}
+
+	/*
+	 * Returns variance of fitness.
+	 */
+	public double getVariance() {
+		return m2 / count;
+	}
+
+	/*
+	 * Returns fitness below which the given fraction of chromosomes lie,
+	 * from 0 (lowest fitness) to 1 (highest fitness).
+	 */
+	public double getQuantile(double q) {
+		if (!sorted) {
+			Arrays.sort(values, 0, count);
+			sorted = true;
+		}
+		int ind = (int) Math.round(q * (count - 1));
+		return values[Math.max(0, Math.min(count - 1, ind))];
+	}
+
+	/*
+	 * Returns mean of the given gene.
+	 */
+	public double getGeneMean(int g) {
+		return geneMean[g];
+	}
+
+	/*
+	 * Returns variance of the given gene.
+	 */
+	public double getGeneVariance(int g) {
+		return geneM2[g] / count;
+	}
+
+	/*
+	 * Returns diversity of population, the standard deviation of every
+	 * gene averaged over all genes.
+	 */
+	public double getDiversity() {
+		double diversity = 0;
+		for (int g = 0; g < geneM2.length; g++) {
+			diversity += Math.sqrt(getGeneVariance(g));
+		}
+		return diversity / geneM2.length;
+	}
+}
@@ -0,0 +1,185 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> RandomStream.java
+*
+* <dt> Description:
+* <dd> Class that represents a stream of random numbers, generated with
+* the SplitMix64 algorithm (the one behind SplittableRandom). Streams
+* are cheap to create and can be split or derived from a single run
+* seed, so every thread, population or tile of games can have its own
+* stream and a whole run is reproducible from that seed. It extends
+* Random so it can be passed to any method taking one, but unlike Random
+* it is not synchronized and must not be shared between threads.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package geneticAlgo;
+
+import java.util.Random;
+
+public class RandomStream extends Random {
+
+	private static final long serialVersionUID = 1L;
+
+	// Increment used for streams created from a seed
+	private final static long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	// Seed for streams created without one
+	private static long defaultSeed = mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime());
+
+	// State of the generator and increment added to it on every number
+	private long state;
+	private long gamma;
+
+	/*
+	 * Constructor of a stream with an unpredictable seed.
+	 */
+	public RandomStream() {
+		this(nextDefaultSeed());
+	}
+
+	/*
+	 * Constructor of a stream with the given seed.
+	 */
+	public RandomStream(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	/*
+	 * Constructor of a stream with the given state and increment.
+	 */
+	private RandomStream(long s, long g) {
+		super(0);
+		state = s;
+		gamma = g;
+	}
+
+	/*
+	 * Returns the stream with the given id derived from a run seed. The
+	 * same seed and id always give the same stream, and different ids
+	 * give independent streams.
+	 */
+	public static RandomStream forStream(long seed, long id) {
+		return new RandomStream(mix64(seed + (2 * id + 1) * GOLDEN_GAMMA), mixGamma(seed + (2 * id + 2) * GOLDEN_GAMMA));
+	}
+
+	/*
+	 * Returns a new stream, independent of this one, and advances this one.
+	 */
+	public RandomStream split() {
+		return new RandomStream(nextLong(), mixGamma(nextSeed()));
+	}
+
+	/*
+	 * Getter method for state of the generator, which together with the
+	 * increment lets the stream be saved and restored.
+	 */
+	public long getState() {
+		return state;
+	}
+
+	/*
+	 * Getter method for increment of the generator.
+	 */
+	public long getGamma() {
+		return gamma;
+	}
+
+	/*
+	 * Method to restore a state and increment saved from a stream, which
+	 * then gives the same numbers the saved stream would have given.
+	 */
+	public void setState(long s, long g) {
+		state = s;
+		gamma = g;
+	}
+
+	/*
+	 * Method to reset the stream to the given seed.
+	 */
+	@Override
+	public void setSeed(long seed) {
+		state = seed;
+		gamma = GOLDEN_GAMMA;
+	}
+
+	@Override
+	public long nextLong() {
+		return mix64(nextSeed());
+	}
+
+	@Override
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+	@Override
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("Bound must be positive");
+		}
+		// Multiply a 31 bit number by the bound and reject the few values
+		// that would make some results more likely than others
+		long m = (nextLong() >>> 33) * bound;
+		if ((m & 0x7fffffffL) < bound) {
+			long threshold = (0x80000000L - bound) % bound;
+			while ((m & 0x7fffffffL) < threshold) {
+				m = (nextLong() >>> 33) * bound;
+			}
+		}
+		return (int) (m >>> 31);
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	/*
+	 * Advances the state of the generator.
+	 */
+	private long nextSeed() {
+		return state += gamma;
+	}
+
+	/*
+	 * Returns the seed for the next stream created without one.
+	 */
+	private static synchronized long nextDefaultSeed() {
+		defaultSeed += 2 * GOLDEN_GAMMA;
+		return mix64(defaultSeed);
+	}
+
+	/*
+	 * Mixes the bits of a state into a random number.
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/*
+	 * Returns an odd increment with enough bit transitions to give a good
+	 * stream.
+	 */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
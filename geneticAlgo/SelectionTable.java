@@ -0,0 +1,100 @@
+/**
+* <dl>
+* <dt> File Name:
+* <dd> SelectionTable.java
+*
+* <dt> Description:
+* <dd> Class that holds the cumulative weights used by Roulette-Wheel and
+* Rank selection, built once from the fitness of a population so every
+* selection is a binary search instead of a scan of the population.
+* </dl>
+*
+* @author Paula Lopez Pozuelo
+*/
+package geneticAlgo;
+
+import java.util.Arrays;
+import java.util.Random;
+
+class SelectionTable {
+
+	// Chromosomes in population order and cumulative weight of each one
+	// for Roulette-Wheel selection
+	private Chromosome[] chromos;
+	private double[] wheel;
+
+	// Chromosomes from fittest to least fit and cumulative weight of each
+	// one for Rank selection
+	private Chromosome[] ranked;
+	private double[] rankWheel;
+
+	/*
+	 * Table constructor for the first size chromosomes of given array.
+	 */
+	SelectionTable(Chromosome[] population, int size) {
+		chromos = Arrays.copyOf(population, size);
+
+		// Fitness can be negative, so weights are measured from the least
+		// fit chromosome, which can not be selected unless all are equal
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			min = Math.min(min, chromos[i].getFitness());
+		}
+		wheel = new double[size];
+		double total = 0;
+		for (int i = 0; i < size; i++) {
+			total += chromos[i].getFitness() - min;
+			wheel[i] = total;
+		}
+		if (!(total > 0)) {
+			for (int i = 0; i < size; i++) {
+				wheel[i] = i + 1;
+			}
+		}
+
+		// Fittest chromosome has weight size and least fit has weight 1
+		ranked = chromos.clone();
+		Arrays.sort(ranked);
+		rankWheel = new double[size];
+		total = 0;
+		for (int i = 0; i < size; i++) {
+			total += size - i;
+			rankWheel[i] = total;
+		}
+	}
+
+	/*
+	 * Select chromosome with probability proportional to its fitness
+	 * above the least fit one.
+	 */
+	Chromosome selectRouletteWheel(Random rand) {
+		return chromos[search(wheel, rand)];
+	}
+
+	/*
+	 * Select chromosome with probability proportional to its rank.
+	 */
+	Chromosome selectRankWheel(Random rand) {
+		return ranked[search(rankWheel, rand)];
+	}
+
+	/*
+	 * Returns first position whose cumulative weight is above a random
+	 * point of the wheel.
+	 */
+	private static int search(double[] cumulative, Random rand) {
+		int last = cumulative.length - 1;
+		double point = rand.nextDouble() * cumulative[last];
+		int low = 0;
+		int high = last;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cumulative[mid] > point) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+}